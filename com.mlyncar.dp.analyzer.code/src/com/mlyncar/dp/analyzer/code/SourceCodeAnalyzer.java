@@ -15,7 +15,11 @@
  */
 package com.mlyncar.dp.analyzer.code;
 
+import java.util.List;
+import java.util.Set;
+
 import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
 
 /**
@@ -25,4 +29,18 @@ import com.mlyncar.dp.analyzer.entity.SeqDiagram;
 public interface SourceCodeAnalyzer {
 
     public SeqDiagram extractSequenceDiagramFromMain() throws SourceCodeAnalyzerException;
+
+    /**
+     * Extracts one diagram for every configured entry point method.
+     *
+     * @param interactionNames names of UML interactions, which may be used as
+     * entry point method names
+     */
+    public List<SeqDiagram> extractSequenceDiagrams(Set<String> interactionNames) throws SourceCodeAnalyzerException;
+
+    /**
+     * Extracts diagrams like {@link #extractSequenceDiagrams(Set)}, messages
+     * of every diagram are passed to sink created by given factory.
+     */
+    public List<SeqDiagram> extractSequenceDiagrams(Set<String> interactionNames, MessageSinkFactory sinkFactory) throws SourceCodeAnalyzerException;
 }
@@ -1,18 +1,10 @@
 package com.mlyncar.dp.analyzer.code.impl;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
-import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.NullProgressMonitor;
-import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.ecore.EObject;
-import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.gmt.modisco.java.Assignment;
-import org.eclipse.gmt.modisco.java.Block;
-import org.eclipse.gmt.modisco.java.BodyDeclaration;
-import org.eclipse.gmt.modisco.java.ClassDeclaration;
 import org.eclipse.gmt.modisco.java.ClassInstanceCreation;
 import org.eclipse.gmt.modisco.java.ConstructorDeclaration;
 import org.eclipse.gmt.modisco.java.Expression;
@@ -31,8 +23,6 @@ import org.eclipse.gmt.modisco.java.Statement;
 import org.eclipse.gmt.modisco.java.StringLiteral;
 import org.eclipse.gmt.modisco.java.VariableDeclarationExpression;
 import org.eclipse.gmt.modisco.java.VariableDeclarationFragment;
-import org.eclipse.modisco.infra.discovery.core.exception.DiscoveryException;
-import org.eclipse.modisco.java.discoverer.DiscoverJavaModelFromJavaProject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,130 +30,89 @@ import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
 import com.mlyncar.dp.analyzer.entity.CombFragment;
 import com.mlyncar.dp.analyzer.entity.CombFragmentType;
 import com.mlyncar.dp.analyzer.entity.impl.CombFragmentImpl;
-import com.mlyncar.dp.analyzer.helper.EclipseProjectNavigatorHelper;
 
 public class JavaDiscoveryHelper {
 
     Logger logger = LoggerFactory.getLogger(JavaDiscoveryHelper.class);
+    private final JavaModelSession session;
 
-    public JavaDiscoveryOutput getMethodName(String className, String methodName, int statementPosition, String statementName) throws SourceCodeAnalyzerException {
+    public JavaDiscoveryHelper(JavaModelSession session) {
+        this.session = session;
+    }
 
-        DiscoverJavaModelFromJavaProject javaDiscovery = new DiscoverJavaModelFromJavaProject();
-        IProgressMonitor monitor = new NullProgressMonitor();
-        try {
-        	logger.debug("Getting method name of {} in {}", statementName, methodName);
-            javaDiscovery.discoverElement(EclipseProjectNavigatorHelper.getCurrentProject(), monitor);
-            Resource resource = javaDiscovery.getTargetModel();
-            Iterator<EObject> it = resource.getAllContents();
-            while (it.hasNext()) {
-                EObject next = it.next();
-                if (next instanceof ClassDeclaration) {
-                    ClassDeclaration clazz = (ClassDeclaration) next;
-                    logger.debug(clazz.getName());
-                    if (clazz.getName().equals(className)) {
-                        for (BodyDeclaration bodyDeclaration : clazz.getBodyDeclarations()) {
-                            if (bodyDeclaration instanceof MethodDeclaration && bodyDeclaration.getName().equals(methodName)) {
-                                MethodDeclaration methodDecl = (MethodDeclaration) bodyDeclaration;
-                                return analyzeBodyStatement(statementPosition, methodDecl.getBody().getStatements(), methodName, statementName);
-                            }
-                        }
-                    }
-                }
-            }
+    public JavaDiscoveryOutput getMethodName(String className, String methodName, int statementPosition, String statementName) throws SourceCodeAnalyzerException {
+        logger.debug("Getting method name of {} in {}", statementName, methodName);
+        JavaModelIndex index = session.getIndex();
+        MethodDeclaration methodDecl = index.getMethodDeclaration(className, methodName);
+        if (methodDecl == null) {
             logger.debug("Unable to get method variable name of {} and {}", methodName, className);
             return new JavaDiscoveryOutput(new ArrayList<CombFragment>(), "");
-        } catch (DiscoveryException ex) {
-            throw new SourceCodeAnalyzerException(
-                    "Failed to create Java file from project", ex);
         }
+        for (Statement statement : index.getStatementsAtPosition(methodDecl, statementPosition)) {
+            JavaDiscoveryOutput result = analyzeStatement(statement, methodName, statementName);
+            if (result != null) {
+                return result;
+            }
+        }
+        logger.debug("Variable in method name {} not found. Index: {}", methodName, statementPosition);
+        return new JavaDiscoveryOutput(new ArrayList<CombFragment>(), "");
     }
 
-    private JavaDiscoveryOutput analyzeBodyStatement(int statementPosition, EList<Statement> statements, String methodName, String statementName) {
-        int statementNum = 0;
-        logger.debug("Number of statements in declaration {}", statements.size());
-        for (Statement statement : statements) {
-            statementNum++;
-            logger.debug("Analyzing statement {} with statementNum {}", statement.toString(), statementNum);
-            if (statement instanceof ExpressionStatement) {
-                ExpressionStatement exprStatement = (ExpressionStatement) statement;
-                if (exprStatement.getExpression() instanceof MethodInvocation) {
-                    MethodInvocation methodInvocation = (MethodInvocation) exprStatement.getExpression();
+    private JavaDiscoveryOutput analyzeStatement(Statement statement, String methodName, String statementName) {
+        logger.debug("Analyzing statement {}", statement.toString());
+        if (statement instanceof ExpressionStatement) {
+            ExpressionStatement exprStatement = (ExpressionStatement) statement;
+            if (exprStatement.getExpression() instanceof MethodInvocation) {
+                MethodInvocation methodInvocation = (MethodInvocation) exprStatement.getExpression();
+                if (methodInvocation.getExpression() instanceof SingleVariableAccess) {
+                    SingleVariableAccess access = (SingleVariableAccess) methodInvocation.getExpression();
+                    if (methodInvocation.getMethod().getName().equals(statementName)) {
+                        logger.debug("Variable from assignment statement methodName {} found: {}", methodInvocation.getMethod().getName(), access.getVariable().getName());
+                        return new JavaDiscoveryOutput(getMethodCombinedFragments(methodInvocation), access.getVariable().getName() + ":");
+                    }
+                }
+            } else if (exprStatement.getExpression() instanceof Assignment) {
+                Assignment assignment = (Assignment) exprStatement.getExpression();
+                logger.debug("Analyzing assignment {}", assignment.toString());
+                if (assignment.getRightHandSide() instanceof MethodInvocation) {
+                    MethodInvocation methodInvocation = (MethodInvocation) assignment.getRightHandSide();
+                    logger.debug("Analyzing assignment method right hand side {}", methodInvocation.toString());
                     if (methodInvocation.getExpression() instanceof SingleVariableAccess) {
                         SingleVariableAccess access = (SingleVariableAccess) methodInvocation.getExpression();
-                        if (statementNum == statementPosition && methodInvocation.getMethod().getName().equals(statementName)) {
+                        logger.debug("RightHandSide variable access {}", access.toString());
+                        if (methodInvocation.getMethod().getName().equals(statementName)) {
                             logger.debug("Variable from assignment statement methodName {} found: {}", methodInvocation.getMethod().getName(), access.getVariable().getName());
                             return new JavaDiscoveryOutput(getMethodCombinedFragments(methodInvocation), access.getVariable().getName() + ":");
                         }
                     }
-                } else if (exprStatement.getExpression() instanceof Assignment) {
-                    Assignment assignment = (Assignment) exprStatement.getExpression();
-                    logger.debug("Analyzing assignment {}", assignment.toString());
-                    if (assignment.getRightHandSide() instanceof MethodInvocation) {
-                        MethodInvocation methodInvocation = (MethodInvocation) assignment.getRightHandSide();
-                    	logger.debug("Analyzing assignment method right hand side {}", methodInvocation.toString());
-                        if (methodInvocation.getExpression() instanceof SingleVariableAccess) {
-                            SingleVariableAccess access = (SingleVariableAccess) methodInvocation.getExpression();
-                           	logger.debug("RightHandSide variable access {}", access.toString());
-                           	logger.debug("StatementNum {}, StatementPoistion {}", statementNum, statementPosition);
-                            if (statementNum == statementPosition && methodInvocation.getMethod().getName().equals(statementName)) {
-                                logger.debug("Variable from assignment statement methodName {} found: {}", methodInvocation.getMethod().getName(), access.getVariable().getName());
-                                return new JavaDiscoveryOutput(getMethodCombinedFragments(methodInvocation), access.getVariable().getName() + ":");
-                            }
+                } else if (assignment.getRightHandSide() instanceof ClassInstanceCreation) {
+                    ClassInstanceCreation creation = (ClassInstanceCreation) assignment.getRightHandSide();
+                    logger.debug("Class instance method name {}, {}", creation.getMethod().getName(), statementName);
+                    if (creation.getMethod().getName().equals(statementName)) {
+                        logger.debug("Returning Java discovery output of statement {}", statementName);
+                        String constructorVar = "new";
+                        if (assignment.getLeftHandSide() instanceof SingleVariableAccess) {
+                            SingleVariableAccess access = (SingleVariableAccess) assignment.getLeftHandSide();
+                            constructorVar = access.getVariable().getName() + ":";
                         }
-                    } else if (assignment.getRightHandSide() instanceof ClassInstanceCreation) {
-                    	ClassInstanceCreation creation = (ClassInstanceCreation) assignment.getRightHandSide();
-                    	logger.debug("Class instance method name {}, {}", creation.getMethod().getName(), statementName);
-                    	if (statementNum == statementPosition && creation.getMethod().getName().equals(statementName)) {
-                    		logger.debug("Returning Java discovery output of statement {} with index {}", statementName, statementNum);
-                    		String constructorVar = "new";
-                    		if(assignment.getLeftHandSide() instanceof SingleVariableAccess) {
-                    			 SingleVariableAccess access = (SingleVariableAccess) assignment.getLeftHandSide();
-                    			 constructorVar = access.getVariable().getName() + ":";
-                    		}
-                            return new JavaDiscoveryOutput(getMethodCombinedFragments(assignment.getRightHandSide()), constructorVar);
-                    	}
+                        return new JavaDiscoveryOutput(getMethodCombinedFragments(assignment.getRightHandSide()), constructorVar);
                     }
                 }
-            }  
-            if (statement instanceof ReturnStatement) {
-                ReturnStatement exprStatement = (ReturnStatement) statement;
-                if (exprStatement.getExpression() instanceof MethodInvocation) {
-                    MethodInvocation methodInvocation = (MethodInvocation) exprStatement.getExpression();
-                    if (methodInvocation.getExpression() instanceof SingleVariableAccess) {
-                        SingleVariableAccess access = (SingleVariableAccess) methodInvocation.getExpression();
-                        if (statementNum == statementPosition && methodInvocation.getMethod().getName().equals(statementName)) {
-                            logger.debug("Variable from return statement methodName {} found: {}", methodName, access.getVariable().getName());
-                            return new JavaDiscoveryOutput(getMethodCombinedFragments(methodInvocation), access.getVariable().getName() + ":");
-                        }
-                    }
-                }
-            }  
-            if (statement instanceof ForStatement) {
-            	logger.debug("For statement found during analysis of method {}", methodName);
-            	ForStatement forStatement = (ForStatement) statement;
-                Block block = (Block) forStatement.getBody();
-                JavaDiscoveryOutput result = analyzeBodyStatement(statementPosition, block.getStatements(), methodName, statementName);
-                if (!result.getVariableName().isEmpty()) {
-                    return result;
-                }
             }
-            if (statement instanceof IfStatement) {
-            	logger.debug("IF statement found during analysis of method {}", methodName);
-                IfStatement exprStatement = (IfStatement) statement;
-                Block block = (Block) exprStatement.getThenStatement();
-                JavaDiscoveryOutput result = analyzeBodyStatement(statementPosition, block.getStatements(), methodName, statementName);
-                if (result.getVariableName().isEmpty() && exprStatement.getElseStatement() != null) {
-                    block = (Block) exprStatement.getElseStatement();
-                    result = analyzeBodyStatement(statementPosition, block.getStatements(), methodName, statementName);
-                }
-                if (!result.getVariableName().isEmpty()) {
-                    return result;
+        } else if (statement instanceof ReturnStatement) {
+            ReturnStatement exprStatement = (ReturnStatement) statement;
+            if (exprStatement.getExpression() instanceof MethodInvocation) {
+                MethodInvocation methodInvocation = (MethodInvocation) exprStatement.getExpression();
+                if (methodInvocation.getExpression() instanceof SingleVariableAccess) {
+                    SingleVariableAccess access = (SingleVariableAccess) methodInvocation.getExpression();
+                    if (methodInvocation.getMethod().getName().equals(statementName)) {
+                        logger.debug("Variable from return statement methodName {} found: {}", methodName, access.getVariable().getName());
+                        return new JavaDiscoveryOutput(getMethodCombinedFragments(methodInvocation), access.getVariable().getName() + ":");
+                    }
                 }
             }
-
         }
-        logger.debug("Variable in method name {} not found. Index: {}", methodName, statementPosition);
-        return new JavaDiscoveryOutput(new ArrayList<CombFragment>(), "");
+        return null;
     }
 
     private List<CombFragment> getMethodCombinedFragments(EObject statement) {
@@ -0,0 +1,111 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.gmt.modisco.java.Block;
+import org.eclipse.gmt.modisco.java.BodyDeclaration;
+import org.eclipse.gmt.modisco.java.ClassDeclaration;
+import org.eclipse.gmt.modisco.java.ExpressionStatement;
+import org.eclipse.gmt.modisco.java.ForStatement;
+import org.eclipse.gmt.modisco.java.IfStatement;
+import org.eclipse.gmt.modisco.java.MethodDeclaration;
+import org.eclipse.gmt.modisco.java.ReturnStatement;
+import org.eclipse.gmt.modisco.java.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lookup tables over discovered Java model. Method declarations are indexed
+ * by class and method name in one pass over the model, statements of a method
+ * are indexed by their position in enclosing block when the method is first
+ * queried.
+ */
+public class JavaModelIndex {
+
+    private final Logger logger = LoggerFactory.getLogger(JavaModelIndex.class);
+    private final Map<String, MethodDeclaration> methodDeclarations = new HashMap<>();
+    private final Map<MethodDeclaration, Map<Integer, List<Statement>>> statementIndexes = new HashMap<>();
+
+    public JavaModelIndex(Resource javaModel) {
+        Iterator<EObject> it = javaModel.getAllContents();
+        while (it.hasNext()) {
+            EObject next = it.next();
+            if (next instanceof ClassDeclaration) {
+                ClassDeclaration clazz = (ClassDeclaration) next;
+                for (BodyDeclaration bodyDeclaration : clazz.getBodyDeclarations()) {
+                    if (bodyDeclaration instanceof MethodDeclaration) {
+                        String key = createKey(clazz.getName(), bodyDeclaration.getName());
+                        if (!methodDeclarations.containsKey(key)) {
+                            methodDeclarations.put(key, (MethodDeclaration) bodyDeclaration);
+                        }
+                    }
+                }
+            }
+        }
+        logger.debug("Java model index created, number of indexed methods {}", methodDeclarations.size());
+    }
+
+    public MethodDeclaration getMethodDeclaration(String className, String methodName) {
+        return methodDeclarations.get(createKey(className, methodName));
+    }
+
+    /**
+     * Returns statements which may contain call on given position. Position is
+     * counted within the block the statement is located in, statements of
+     * nested blocks are returned in the order of their appearance in method.
+     */
+    public List<Statement> getStatementsAtPosition(MethodDeclaration method, int statementPosition) {
+        Map<Integer, List<Statement>> statementIndex = statementIndexes.get(method);
+        if (statementIndex == null) {
+            statementIndex = new HashMap<>();
+            if (method.getBody() != null) {
+                indexStatements(method.getBody().getStatements(), statementIndex);
+            }
+            statementIndexes.put(method, statementIndex);
+        }
+        List<Statement> statements = statementIndex.get(statementPosition);
+        if (statements == null) {
+            return Collections.emptyList();
+        }
+        return statements;
+    }
+
+    private void indexStatements(EList<Statement> statements, Map<Integer, List<Statement>> statementIndex) {
+        int statementNum = 0;
+        for (Statement statement : statements) {
+            statementNum++;
+            if (statement instanceof ExpressionStatement || statement instanceof ReturnStatement) {
+                List<Statement> positionStatements = statementIndex.get(statementNum);
+                if (positionStatements == null) {
+                    positionStatements = new ArrayList<>();
+                    statementIndex.put(statementNum, positionStatements);
+                }
+                positionStatements.add(statement);
+            } else if (statement instanceof ForStatement) {
+                indexBlock(((ForStatement) statement).getBody(), statementIndex);
+            } else if (statement instanceof IfStatement) {
+                IfStatement ifStatement = (IfStatement) statement;
+                indexBlock(ifStatement.getThenStatement(), statementIndex);
+                indexBlock(ifStatement.getElseStatement(), statementIndex);
+            }
+        }
+    }
+
+    private void indexBlock(Statement block, Map<Integer, List<Statement>> statementIndex) {
+        if (block instanceof Block) {
+            indexStatements(((Block) block).getStatements(), statementIndex);
+        }
+    }
+
+    private String createKey(String className, String methodName) {
+        return className + "#" + methodName;
+    }
+}
@@ -0,0 +1,62 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.modisco.infra.discovery.core.exception.DiscoveryException;
+import org.eclipse.modisco.java.discoverer.DiscoverJavaModelFromJavaProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+
+/**
+ * Holds MoDisco Java model of analyzed project for the time of one
+ * synchronization. Model is discovered on first access and shared by all
+ * lookups until the session is disposed.
+ */
+public class JavaModelSession {
+
+    private final Logger logger = LoggerFactory.getLogger(JavaModelSession.class);
+    private final IJavaProject project;
+    private Resource javaModel;
+    private JavaModelIndex javaModelIndex;
+
+    public JavaModelSession(IJavaProject project) {
+        this.project = project;
+    }
+
+    public Resource getJavaModel() throws SourceCodeAnalyzerException {
+        if (javaModel == null) {
+            DiscoverJavaModelFromJavaProject javaDiscovery = new DiscoverJavaModelFromJavaProject();
+            try {
+                logger.debug("Discovering Java model of project {}", project.getElementName());
+                javaDiscovery.discoverElement(project, new NullProgressMonitor());
+                javaModel = javaDiscovery.getTargetModel();
+            } catch (DiscoveryException ex) {
+                throw new SourceCodeAnalyzerException(
+                        "Failed to create Java file from project", ex);
+            }
+        }
+        return javaModel;
+    }
+
+    public JavaModelIndex getIndex() throws SourceCodeAnalyzerException {
+        if (javaModelIndex == null) {
+            javaModelIndex = new JavaModelIndex(getJavaModel());
+        }
+        return javaModelIndex;
+    }
+
+    public void dispose() {
+        javaModelIndex = null;
+        if (javaModel != null) {
+            logger.debug("Releasing Java model of project {}", project.getElementName());
+            javaModel.unload();
+            if (javaModel.getResourceSet() != null) {
+                javaModel.getResourceSet().getResources().remove(javaModel);
+            }
+            javaModel = null;
+        }
+    }
+}
@@ -15,9 +15,18 @@
  */
 package com.mlyncar.dp.analyzer.code.impl;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Pattern;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
@@ -31,7 +40,14 @@ import org.eclipse.gmt.modisco.omg.kdm.code.Package;
 import org.eclipse.gmt.modisco.omg.kdm.code.ClassUnit;
 import org.eclipse.gmt.modisco.omg.kdm.code.InterfaceUnit;
 import org.eclipse.gmt.modisco.omg.kdm.code.MethodUnit;
+import org.eclipse.gmt.modisco.omg.kdm.code.ParameterKind;
+import org.eclipse.gmt.modisco.omg.kdm.code.ParameterUnit;
+import org.eclipse.gmt.modisco.omg.kdm.code.Signature;
 import org.eclipse.gmt.modisco.omg.kdm.code.StorableUnit;
+import org.eclipse.gmt.modisco.omg.kdm.core.KDMEntity;
+import org.eclipse.gmt.modisco.omg.kdm.source.SourceRef;
+import org.eclipse.gmt.modisco.omg.kdm.source.SourceRegion;
+import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.modisco.infra.discovery.core.exception.DiscoveryException;
 import org.eclipse.modisco.java.discoverer.DiscoverKDMModelFromJavaProject;
 import org.slf4j.Logger;
@@ -41,12 +57,13 @@ import com.mlyncar.dp.analyzer.code.SourceCodeAnalyzer;
 import com.mlyncar.dp.analyzer.code.exception.MainMethodNotFoundException;
 import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
 import com.mlyncar.dp.analyzer.code.impl.JavaDiscoveryHelper.JavaDiscoveryOutput;
-import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.config.AnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.config.ProjectContext;
 import com.mlyncar.dp.analyzer.entity.Lifeline;
 import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
 import com.mlyncar.dp.analyzer.entity.MessageType;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
-import com.mlyncar.dp.analyzer.entity.impl.LifelineImpl;
 import com.mlyncar.dp.analyzer.entity.impl.MessageImpl;
 import com.mlyncar.dp.analyzer.entity.impl.SeqDiagramImpl;
 import com.mlyncar.dp.analyzer.helper.EclipseProjectNavigatorHelper;
@@ -58,58 +75,239 @@ import com.mlyncar.dp.analyzer.test.TestHelper;
  */
 public class KdmAnalyzer implements SourceCodeAnalyzer {
 
+    private static final Pattern MAIN_METHOD_PATTERN = Pattern.compile("main");
+
     private final Logger logger = LoggerFactory.getLogger(KdmAnalyzer.class);
+    private final AnalyzerConfiguration configuration;
+    private final ProjectContext projectContext;
 
     public KdmAnalyzer() {
+        this(new AnalyzerConfiguration());
+    }
+
+    public KdmAnalyzer(AnalyzerConfiguration configuration) {
+        this(configuration, null);
+    }
+
+    /**
+     * @param projectContext analyzed project, project selected in the
+     * workbench is analyzed when null
+     */
+    public KdmAnalyzer(AnalyzerConfiguration configuration, ProjectContext projectContext) {
+        this.configuration = configuration;
+        this.projectContext = projectContext;
     }
 
     @Override
     public SeqDiagram extractSequenceDiagramFromMain() throws SourceCodeAnalyzerException {
-        DiscoverKDMModelFromJavaProject discoverer = new DiscoverKDMModelFromJavaProject();
-        discoverer.setSerializeTarget(true);
-        IProgressMonitor monitor = new NullProgressMonitor();
+        return extractSequenceDiagrams(MAIN_METHOD_PATTERN, Collections.<String>emptySet(), true, null).get(0);
+    }
+
+    @Override
+    public List<SeqDiagram> extractSequenceDiagrams(Set<String> interactionNames) throws SourceCodeAnalyzerException {
+        return extractSequenceDiagrams(interactionNames, null);
+    }
+
+    @Override
+    public List<SeqDiagram> extractSequenceDiagrams(Set<String> interactionNames, MessageSinkFactory sinkFactory) throws SourceCodeAnalyzerException {
+        Set<String> entryNames = configuration.isEntryPointsFromInteractions() ? interactionNames : Collections.<String>emptySet();
+        return extractSequenceDiagrams(configuration.getEntryPointPattern(), entryNames, false, sinkFactory);
+    }
+
+    private List<SeqDiagram> extractSequenceDiagrams(Pattern entryPattern, Set<String> entryNames, boolean firstOnly, MessageSinkFactory sinkFactory)
+            throws SourceCodeAnalyzerException {
+        IJavaProject project = projectContext == null ? EclipseProjectNavigatorHelper.getCurrentProject() : projectContext.getJavaProject();
+        JavaModelSession javaModelSession = new JavaModelSession(project);
+        MethodSequenceCache cache = configuration.isIncremental()
+                ? MethodSequenceCache.getInstance(project.getElementName()) : MethodSequenceCache.createUnshared(project.getElementName());
+        Extraction extraction = new Extraction(new JavaDiscoveryHelper(javaModelSession), cache);
+        synchronized (cache) {
+            return extractSequenceDiagrams(project, javaModelSession, extraction, entryPattern, entryNames, firstOnly, sinkFactory);
+        }
+    }
+
+    private List<SeqDiagram> extractSequenceDiagrams(IJavaProject project, JavaModelSession javaModelSession, Extraction extraction,
+            Pattern entryPattern, Set<String> entryNames, boolean firstOnly, MessageSinkFactory sinkFactory) throws SourceCodeAnalyzerException {
+        Resource kdmResource = null;
         try {
-            discoverer.discoverElement(EclipseProjectNavigatorHelper.getCurrentProject(), monitor);
-            Resource kdmResource = discoverer.getTargetModel();
-            SeqDiagram diagram = new SeqDiagramImpl();
-            MethodUnit mainMethod = findMainMethod(kdmResource, diagram);
-            analyzeMethodUnit(diagram, mainMethod, "main:", new ArrayList<CombFragment>());
-            TestHelper.validateDiagram(diagram);
-            return diagram;
+            kdmResource = loadKdmModel(project, extraction.sequenceCache);
+            List<MethodUnit> entryMethods = findEntryMethods(kdmResource, entryPattern, entryNames);
+            if (firstOnly && entryMethods.size() > 1) {
+                logger.warn("Found {} entry methods, extracting diagram of the first one", entryMethods.size());
+                entryMethods = entryMethods.subList(0, 1);
+            }
+            List<MethodSequence> entrySequences = new ArrayList<>();
+            for (MethodUnit entryMethod : entryMethods) {
+                entrySequences.add(buildMethodSequence(entryMethod, extraction));
+            }
+            MessageBudget messageBudget = new MessageBudget(configuration.getMessageBudget());
+            if (configuration.getParallelism() > 1 && entryMethods.size() > 1) {
+                return extractSequenceDiagramsInParallel(entryMethods, entrySequences, messageBudget, sinkFactory);
+            }
+            List<SeqDiagram> diagrams = new ArrayList<>();
+            for (int i = 0; i < entryMethods.size(); i++) {
+                diagrams.add(extractSequenceDiagram(entryMethods.get(i), entrySequences.get(i), messageBudget, sinkFactory));
+            }
+            return diagrams;
         } catch (DiscoveryException | MainMethodNotFoundException ex) {
             throw new SourceCodeAnalyzerException(
                     "Failed to create KDM file from project", ex);
+        } finally {
+            if (kdmResource != null) {
+                KdmModelCache.unloadModel(kdmResource);
+            }
+            javaModelSession.dispose();
+        }
+    }
+
+    /**
+     * Replays templates of entry methods on a bounded fork-join pool. All
+     * templates are created before, so the workers only read them.
+     */
+    private List<SeqDiagram> extractSequenceDiagramsInParallel(final List<MethodUnit> entryMethods, final List<MethodSequence> entrySequences,
+            final MessageBudget messageBudget, final MessageSinkFactory sinkFactory) throws SourceCodeAnalyzerException {
+        int parallelism = Math.min(configuration.getParallelism(), entryMethods.size());
+        logger.debug("Extracting {} diagrams using {} threads", entryMethods.size(), parallelism);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<SeqDiagram>> tasks = new ArrayList<>();
+            for (int i = 0; i < entryMethods.size(); i++) {
+                final int index = i;
+                tasks.add(pool.submit(new Callable<SeqDiagram>() {
+                    @Override
+                    public SeqDiagram call() {
+                        return extractSequenceDiagram(entryMethods.get(index), entrySequences.get(index), messageBudget, sinkFactory);
+                    }
+                }));
+            }
+            List<SeqDiagram> diagrams = new ArrayList<>();
+            for (ForkJoinTask<SeqDiagram> task : tasks) {
+                diagrams.add(task.get());
+            }
+            return diagrams;
+        } catch (ExecutionException ex) {
+            throw new SourceCodeAnalyzerException("Failed to extract sequence diagram of entry method", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SourceCodeAnalyzerException("Extraction of sequence diagrams was interrupted", ex);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private SeqDiagram extractSequenceDiagram(MethodUnit entryMethod, MethodSequence entrySequence, MessageBudget messageBudget,
+            MessageSinkFactory sinkFactory) {
+        ClassUnit classUnit = (ClassUnit) entryMethod.eContainer();
+        SeqDiagram diagram = new SeqDiagramImpl();
+        diagram.setName(entryMethod.getName());
+        diagram.setId(getClassPackage(classUnit) + classUnit.getName() + "." + entryMethod.getName());
+        if (sinkFactory != null) {
+            diagram.setMessageSink(sinkFactory.createMessageSink(diagram), configuration.isStreamedMessagesRetained());
+        }
+        String variableName = entryMethod.getName() + ":";
+        Lifeline actorLifeline = diagram.getLifeline("Actor");
+        Lifeline lifeline = diagram.getLifeline(variableName + classUnit.getName());
+        Message startMessage = new MessageImpl(0, MessageType.SYNCH, entryMethod.getName(), lifeline, actorLifeline, null);
+        diagram.addMessage(startMessage);
+        boolean complete = entrySequence.replay(diagram, variableName, configuration.getMaxCallDepth(), messageBudget);
+        if (!complete) {
+            logger.warn("Diagram of entry method {} was truncated after {} messages", entryMethod.getName(), diagram.getMessageCount());
+        }
+        if (configuration.isValidationEnabled()) {
+            TestHelper.validateDiagram(diagram);
         }
+        return diagram;
     }
 
-    private MethodUnit findMainMethod(Resource kdmResource, SeqDiagram diagram) throws MainMethodNotFoundException {
+    private Resource loadKdmModel(IJavaProject project, MethodSequenceCache sequenceCache) throws SourceCodeAnalyzerException, DiscoveryException {
+        KdmModelCache cache = new KdmModelCache(project);
+        Resource kdmResource = cache.loadModel();
+        if (configuration.isIncremental()) {
+            sequenceCache.invalidate(cache.getChangedFiles(), cache.isFilesAddedOrRemoved());
+        }
+        if (kdmResource == null) {
+            DiscoverKDMModelFromJavaProject discoverer = new DiscoverKDMModelFromJavaProject();
+            discoverer.setSerializeTarget(true);
+            IProgressMonitor monitor = new NullProgressMonitor();
+            discoverer.discoverElement(project, monitor);
+            kdmResource = discoverer.getTargetModel();
+            cache.storeModel(kdmResource);
+        }
+        return kdmResource;
+    }
+
+    /**
+     * Finds methods of classes which match entry point pattern or whose name
+     * is one of entry names, in the order of KDM model.
+     */
+    private List<MethodUnit> findEntryMethods(Resource kdmResource, Pattern entryPattern, Set<String> entryNames) throws MainMethodNotFoundException {
+        List<MethodUnit> entryMethods = new ArrayList<>();
         Iterator<EObject> it = kdmResource.getAllContents();
         while (it.hasNext()) {
             EObject next = it.next();
-            if (next instanceof MethodUnit) {
+            if (next instanceof MethodUnit && next.eContainer() instanceof ClassUnit) {
                 MethodUnit methodUnit = (MethodUnit) next;
-                if (methodUnit.getName().equals("main")) {
-                    ClassUnit classUnit = (ClassUnit) methodUnit.eContainer();
-                    Lifeline actorLifeline = new LifelineImpl("Actor");
-                    Lifeline lifeline = new LifelineImpl("main:" + classUnit.getName());
-                    Message startMessage = new MessageImpl(0, MessageType.SYNCH, "main", lifeline, actorLifeline, null);
-                    diagram.addMessage(startMessage);
-                    return methodUnit;
+                if (entryPattern.matcher(methodUnit.getName()).matches() || entryNames.contains(methodUnit.getName())) {
+                    logger.debug("Found entry method {}", methodUnit.getName());
+                    entryMethods.add(methodUnit);
                 }
             }
         }
-        throw new MainMethodNotFoundException("Unable to find main method in KDM structure");
+        if (entryMethods.isEmpty()) {
+            throw new MainMethodNotFoundException("Unable to find entry method in KDM structure");
+        }
+        return entryMethods;
     }
 
-    private void analyzeMethodUnit(SeqDiagram diagram, MethodUnit method, String variableName, List<CombFragment> fragments) throws SourceCodeAnalyzerException {
+    /**
+     * Returns template of the entry method. Bodies of called methods are
+     * analyzed from a worklist instead of recursion along calls, so depth of
+     * the call graph does not grow the stack. Recursive calls refer to the
+     * template being created and recursion is resolved when the template is
+     * replayed.
+     */
+    private MethodSequence buildMethodSequence(MethodUnit entryMethod, Extraction extraction) throws SourceCodeAnalyzerException {
+        MethodSequence sequence = getMethodSequence(entryMethod, extraction);
+        try {
+            while (!extraction.pendingMethods.isEmpty()) {
+                PendingMethod pendingMethod = extraction.pendingMethods.poll();
+                analyzeMethodUnit(pendingMethod.method, pendingMethod.sequence, extraction);
+            }
+        } catch (SourceCodeAnalyzerException | RuntimeException ex) {
+            extraction.pendingMethods.clear();
+            extraction.sequenceCache.clear();
+            throw ex;
+        }
+        return sequence;
+    }
+
+    /**
+     * Returns template of the method. Template of method which was not
+     * analyzed yet is registered empty and the method is queued for analysis.
+     */
+    private MethodSequence getMethodSequence(MethodUnit method, Extraction extraction) {
+        String methodKey = getMethodKey(method);
+        MethodSequence sequence = extraction.sequenceCache.getSequence(methodKey);
+        if (sequence == null) {
+            sequence = new MethodSequence(getSourceFile(method));
+            extraction.sequenceCache.putSequence(methodKey, sequence);
+            extraction.pendingMethods.add(new PendingMethod(method, sequence));
+        } else {
+            logger.debug("Reusing message sequence of method {}", methodKey);
+        }
+        return sequence;
+    }
+
+    private void analyzeMethodUnit(MethodUnit method, MethodSequence sequence, Extraction extraction) throws SourceCodeAnalyzerException {
         int statementIndex = 0;
         for (AbstractCodeElement element : method.getCodeElement()) {
             statementIndex++;
-            analyzeCodeElement(element, diagram, method, variableName, statementIndex, fragments);
+            analyzeCodeElement(element, sequence, method, statementIndex, extraction);
         }
     }
 
-    private void analyzeCodeElement(AbstractCodeElement codeElement, SeqDiagram diagram, MethodUnit method, String currentVariableName, int statementPosition, List<CombFragment> fragments) throws SourceCodeAnalyzerException {
+    private void analyzeCodeElement(AbstractCodeElement codeElement, MethodSequence sequence, MethodUnit method, int statementPosition,
+            Extraction extraction) throws SourceCodeAnalyzerException {
         if (codeElement instanceof ActionElement) {
             ActionElement actionElement = (ActionElement) codeElement;
             int statementIndex = 0;
@@ -123,27 +321,23 @@ public class KdmAnalyzer implements SourceCodeAnalyzer {
                             MethodUnit newMethod = (MethodUnit) call.getTo();
                             String newMethodClassName = getMethodClassName(newMethod);
                             String methodClassName = getMethodClassName(method);
-                            JavaDiscoveryOutput output = new JavaDiscoveryHelper().getMethodName(methodClassName, method.getName(), statementPosition, newMethod.getName());
+                            JavaDiscoveryOutput output = extraction.javaDiscoveryHelper.getMethodName(methodClassName, method.getName(), statementPosition, newMethod.getName());
                             String variableName = output.getVariableName();
                             MessageType type = MessageType.SYNCH;
                             if (newMethodClassName.equals(methodClassName)) {
                                 type = MessageType.SELF;
-                                variableName = currentVariableName;
+                                variableName = null;
                             }
-                            List<CombFragment> newFragments = new ArrayList<CombFragment>(fragments);
-                            newFragments.addAll(output.getFragments());
 
                             String newPackage = getClassPackage(newMethod.eContainer());
                             String thisPackage = getClassPackage(method.eContainer());
-                            diagram.addMessage(new MessageImpl(diagram.getMessages().size(), type, newMethod.getName(),
-                                    new LifelineImpl(variableName + newMethodClassName, newPackage),
-                                    new LifelineImpl(currentVariableName + methodClassName, thisPackage), newFragments));
+                            sequence.addMessage(type, newMethod.getName(), variableName, newMethodClassName, newPackage,
+                                    null, methodClassName, thisPackage, output.getFragments());
                             logger.debug("Adding new message to diagram: {}, {}", newMethod.getName(), newMethod.toString());
 
-                            analyzeMethodUnit(diagram, newMethod, variableName, newFragments);
-                            diagram.addMessage(new MessageImpl(diagram.getMessages().size(), MessageType.RETURN, newMethod.getName() + "Ret",
-                                    new LifelineImpl(currentVariableName + methodClassName, thisPackage),
-                                    new LifelineImpl(variableName + newMethodClassName, newPackage), newFragments));
+                            sequence.addSequence(getMethodSequence(newMethod, extraction), variableName, output.getFragments());
+                            sequence.addMessage(MessageType.RETURN, newMethod.getName() + "Ret", null, methodClassName, thisPackage,
+                                    variableName, newMethodClassName, newPackage, output.getFragments());
                         }
                     }
                 } else if (innerBlockElement.getName() != null && innerBlockElement.getName().equals("class instance creation")) {
@@ -154,26 +348,24 @@ public class KdmAnalyzer implements SourceCodeAnalyzer {
                             MethodUnit newMethod = (MethodUnit) call.getTo();
                             String newPackage = getClassPackage(newMethod.eContainer());
                             String thisPackage = getClassPackage(method.eContainer());
-                            List<CombFragment> newFragments = new ArrayList<CombFragment>(fragments);
                             String methodClassName = getMethodClassName(method);
                             
-                            JavaDiscoveryOutput output = new JavaDiscoveryHelper().getMethodName(methodClassName, method.getName(), statementPosition, newMethod.getName());
+                            JavaDiscoveryOutput output = extraction.javaDiscoveryHelper.getMethodName(methodClassName, method.getName(), statementPosition, newMethod.getName());
                             String variableName = output.getVariableName();
-                            newFragments.addAll(output.getFragments());
-                            diagram.addMessage(new MessageImpl(diagram.getMessages().size(), MessageType.SYNCH, newMethod.getName(),
-                                    new LifelineImpl(variableName + ((ClassUnit) newMethod.eContainer()).getName(), newPackage),
-                                    new LifelineImpl(currentVariableName + ((ClassUnit) method.eContainer()).getName(), thisPackage), newFragments));
+                            String newClassName = ((ClassUnit) newMethod.eContainer()).getName();
+                            String thisClassName = ((ClassUnit) method.eContainer()).getName();
+                            sequence.addMessage(MessageType.SYNCH, newMethod.getName(), variableName, newClassName, newPackage,
+                                    null, thisClassName, thisPackage, output.getFragments());
                             logger.debug("Adding new message to diagram: {}, CONSTRUCTOR {}", newMethod.getName(), newMethod.toString());
-                            analyzeMethodUnit(diagram, newMethod, variableName, newFragments);
-                            diagram.addMessage(new MessageImpl(diagram.getMessages().size(), MessageType.RETURN, newMethod.getName() + "Ret",
-                                    new LifelineImpl(currentVariableName + ((ClassUnit) method.eContainer()).getName(), thisPackage),
-                                    new LifelineImpl(variableName + ((ClassUnit) newMethod.eContainer()).getName(), newPackage), newFragments));
+                            sequence.addSequence(getMethodSequence(newMethod, extraction), variableName, output.getFragments());
+                            sequence.addMessage(MessageType.RETURN, newMethod.getName() + "Ret", null, thisClassName, thisPackage,
+                                    variableName, newClassName, newPackage, output.getFragments());
                         }
                     }
                 } else if(innerBlockElement.getName() != null && innerBlockElement.getName().equals("ASSIGN")) {
-                    analyzeCodeElement(innerBlockElement, diagram, method, currentVariableName, statementPosition, fragments);
+                    analyzeCodeElement(innerBlockElement, sequence, method, statementPosition, extraction);
                 } else {
-                    analyzeCodeElement(innerBlockElement, diagram, method, currentVariableName, statementIndex, fragments);
+                    analyzeCodeElement(innerBlockElement, sequence, method, statementIndex, extraction);
                 }
             }
         } else if (codeElement instanceof BlockUnit) {
@@ -181,9 +373,48 @@ public class KdmAnalyzer implements SourceCodeAnalyzer {
             int statementIndex = 0;
             for (AbstractCodeElement blockElement : unit.getCodeElement()) {
                 statementIndex++;
-                analyzeCodeElement(blockElement, diagram, method, currentVariableName, statementIndex, fragments);
+                analyzeCodeElement(blockElement, sequence, method, statementIndex, extraction);
+            }
+        }
+    }
+
+    /**
+     * Key identifying method across rediscovered KDM models, composed of
+     * names of enclosing elements, method name and types of its parameters.
+     */
+    private String getMethodKey(MethodUnit method) {
+        EObject container = method.eContainer();
+        StringBuilder key = new StringBuilder(method.getName()).append('(');
+        if (method.getType() instanceof Signature) {
+            String separator = "";
+            for (ParameterUnit parameter : ((Signature) method.getType()).getParameterUnit()) {
+                if (parameter.getKind() != ParameterKind.RETURN) {
+                    key.append(separator).append(parameter.getType() == null ? "?" : parameter.getType().getName());
+                    separator = ",";
+                }
             }
         }
+        key.append(')');
+        while (container instanceof KDMEntity) {
+            key.insert(0, ((KDMEntity) container).getName() + ".");
+            container = container.eContainer();
+        }
+        return key.toString();
+    }
+
+    private String getSourceFile(MethodUnit method) {
+        EObject element = method;
+        while (element instanceof AbstractCodeElement) {
+            for (SourceRef sourceRef : ((AbstractCodeElement) element).getSource()) {
+                for (SourceRegion region : sourceRef.getRegion()) {
+                    if (region.getFile() != null && region.getFile().getPath() != null) {
+                        return region.getFile().getPath();
+                    }
+                }
+            }
+            element = element.eContainer();
+        }
+        return null;
     }
 
     private String getInstanceVariableName(ActionElement actionElement) {
@@ -215,4 +446,30 @@ public class KdmAnalyzer implements SourceCodeAnalyzer {
         return packageResult;
     }
 
+    /**
+     * State of one extraction, which is confined to the thread holding lock
+     * of its method sequence cache.
+     */
+    private static class Extraction {
+
+        private final JavaDiscoveryHelper javaDiscoveryHelper;
+        private final MethodSequenceCache sequenceCache;
+        private final Deque<PendingMethod> pendingMethods = new ArrayDeque<>();
+
+        private Extraction(JavaDiscoveryHelper javaDiscoveryHelper, MethodSequenceCache sequenceCache) {
+            this.javaDiscoveryHelper = javaDiscoveryHelper;
+            this.sequenceCache = sequenceCache;
+        }
+    }
+
+    private static class PendingMethod {
+
+        private final MethodUnit method;
+        private final MethodSequence sequence;
+
+        private PendingMethod(MethodUnit method, MethodSequence sequence) {
+            this.method = method;
+            this.sequence = sequence;
+        }
+    }
 }
@@ -0,0 +1,215 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaModelException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.Activator;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+
+/**
+ * Stores discovered KDM model of a project in the plug-in state location
+ * together with content hashes of project compilation units. Stored model is
+ * reused until any compilation unit is added, removed or modified. Hashes are
+ * keyed by file system location of compilation unit, the same path KDM
+ * source files refer to, so changed parts of the model can be identified.
+ */
+public class KdmModelCache {
+
+    private static final String CACHE_DIRECTORY = "kdm";
+    private static final String HASH_ALGORITHM = "SHA-1";
+
+    private final Logger logger = LoggerFactory.getLogger(KdmModelCache.class);
+    private final IJavaProject project;
+    private final File modelFile;
+    private final File fingerprintFile;
+    private Properties fingerprint;
+    private final Set<String> changedFiles = new HashSet<>();
+    private boolean filesAddedOrRemoved;
+
+    public KdmModelCache(IJavaProject project) {
+        this.project = project;
+        File cacheDirectory = Activator.getDefault().getStateLocation().append(CACHE_DIRECTORY).toFile();
+        this.modelFile = new File(cacheDirectory, project.getElementName() + "_kdm.xmi");
+        this.fingerprintFile = new File(cacheDirectory, project.getElementName() + "_kdm.properties");
+    }
+
+    /**
+     * Returns cached KDM model or null if there is no cached model or source
+     * code of the project was changed since the model was stored.
+     */
+    public Resource loadModel() throws SourceCodeAnalyzerException {
+        this.fingerprint = computeFingerprint();
+        Properties storedFingerprint = loadStoredFingerprint();
+        compareFingerprints(storedFingerprint);
+        if (!modelFile.exists() || !fingerprint.equals(storedFingerprint)) {
+            logger.debug("KDM model of project {} is not cached or source code was changed", project.getElementName());
+            return null;
+        }
+        try {
+            ResourceSet set = new ResourceSetImpl();
+            set.getResourceFactoryRegistry().getExtensionToFactoryMap()
+                    .put("xmi", new XMIResourceFactoryImpl());
+            Resource resource = set.getResource(URI.createFileURI(modelFile.getAbsolutePath()), true);
+            logger.debug("KDM model of project {} loaded from cache {}", project.getElementName(), modelFile.getAbsolutePath());
+            return resource;
+        } catch (RuntimeException ex) {
+            logger.debug("Unable to load cached KDM model {}: {}", modelFile.getAbsolutePath(), ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores discovered model together with fingerprint computed during last
+     * {@link #loadModel()} call. Failure to store the model is not fatal, next
+     * synchronization discovers the model again.
+     */
+    public void storeModel(Resource kdmResource) {
+        if (fingerprint == null) {
+            return;
+        }
+        File cacheDirectory = modelFile.getParentFile();
+        if (!cacheDirectory.exists() && !cacheDirectory.mkdirs()) {
+            logger.debug("Unable to create KDM cache directory {}", cacheDirectory.getAbsolutePath());
+            return;
+        }
+        URI discoveredUri = kdmResource.getURI();
+        try {
+            kdmResource.setURI(URI.createFileURI(modelFile.getAbsolutePath()));
+            try {
+                kdmResource.save(null);
+            } finally {
+                kdmResource.setURI(discoveredUri);
+            }
+            try (OutputStream out = new FileOutputStream(fingerprintFile)) {
+                fingerprint.store(out, "Compilation unit hashes of project " + project.getElementName());
+            }
+            logger.debug("KDM model of project {} stored to cache {}", project.getElementName(), modelFile.getAbsolutePath());
+        } catch (IOException ex) {
+            logger.debug("Unable to store KDM model to cache: {}", ex.getMessage());
+            fingerprintFile.delete();
+        }
+    }
+
+    /**
+     * Unloads the model together with other resources of its resource set.
+     * Messages extracted from the model do not refer to it, so the model is
+     * unloaded once the analysis is finished instead of being kept until the
+     * model is loaded again.
+     */
+    public static void unloadModel(Resource kdmResource) {
+        ResourceSet set = kdmResource.getResourceSet();
+        if (set == null) {
+            kdmResource.unload();
+            return;
+        }
+        for (Resource resource : new ArrayList<>(set.getResources())) {
+            resource.unload();
+        }
+        set.getResources().clear();
+    }
+
+    /**
+     * Returns locations of compilation units which were modified, added or
+     * removed since the model was stored, valid after {@link #loadModel()}.
+     */
+    public Set<String> getChangedFiles() {
+        return changedFiles;
+    }
+
+    public boolean isFilesAddedOrRemoved() {
+        return filesAddedOrRemoved;
+    }
+
+    private void compareFingerprints(Properties storedFingerprint) {
+        changedFiles.clear();
+        filesAddedOrRemoved = false;
+        for (String file : fingerprint.stringPropertyNames()) {
+            String storedHash = storedFingerprint.getProperty(file);
+            if (storedHash == null) {
+                filesAddedOrRemoved = true;
+                changedFiles.add(file);
+            } else if (!storedHash.equals(fingerprint.getProperty(file))) {
+                changedFiles.add(file);
+            }
+        }
+        for (String file : storedFingerprint.stringPropertyNames()) {
+            if (!fingerprint.containsKey(file)) {
+                filesAddedOrRemoved = true;
+                changedFiles.add(file);
+            }
+        }
+    }
+
+    private Properties loadStoredFingerprint() {
+        Properties storedFingerprint = new Properties();
+        if (fingerprintFile.exists()) {
+            try (InputStream in = new FileInputStream(fingerprintFile)) {
+                storedFingerprint.load(in);
+            } catch (IOException ex) {
+                logger.debug("Unable to read KDM cache fingerprint: {}", ex.getMessage());
+            }
+        }
+        return storedFingerprint;
+    }
+
+    private Properties computeFingerprint() throws SourceCodeAnalyzerException {
+        Properties unitHashes = new Properties();
+        try {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            for (IPackageFragmentRoot root : project.getPackageFragmentRoots()) {
+                if (root.getKind() != IPackageFragmentRoot.K_SOURCE) {
+                    continue;
+                }
+                for (IJavaElement element : root.getChildren()) {
+                    if (!(element instanceof IPackageFragment)) {
+                        continue;
+                    }
+                    for (ICompilationUnit unit : ((IPackageFragment) element).getCompilationUnits()) {
+                        IResource resource = unit.getResource();
+                        if (resource != null && resource.getLocation() != null) {
+                            byte[] content = Files.readAllBytes(resource.getLocation().toFile().toPath());
+                            unitHashes.setProperty(resource.getLocation().toOSString(), toHex(digest.digest(content)));
+                        }
+                    }
+                }
+            }
+        } catch (JavaModelException | IOException | NoSuchAlgorithmException ex) {
+            throw new SourceCodeAnalyzerException("Unable to compute fingerprint of project source code", ex);
+        }
+        return unitHashes;
+    }
+
+    private String toHex(byte[] hash) {
+        StringBuilder builder = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Number of messages which may still be extracted during one analysis,
+ * shared by diagrams of all its entry methods. Messages are reserved
+ * atomically, so the diagrams may be replayed concurrently.
+ */
+public class MessageBudget {
+
+    private final AtomicInteger remaining;
+
+    public MessageBudget(int messageBudget) {
+        this.remaining = new AtomicInteger(messageBudget);
+    }
+
+    /**
+     * Reserves given number of messages if they fit into the budget.
+     *
+     * @return false if the budget does not leave room for the messages
+     */
+    public boolean reserve(int count) {
+        while (true) {
+            int current = remaining.get();
+            if (current < count) {
+                return false;
+            }
+            if (remaining.compareAndSet(current, current - count)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Consumes given number of messages regardless of the remaining budget.
+     */
+    public void consume(int count) {
+        remaining.addAndGet(-count);
+    }
+}
@@ -0,0 +1,231 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.MessageType;
+import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+import com.mlyncar.dp.analyzer.entity.impl.CombFragmentContext;
+import com.mlyncar.dp.analyzer.entity.impl.MessageImpl;
+
+/**
+ * Message template produced by analysis of one method unit, recorded
+ * independently of the call site. Calls of other methods refer to templates
+ * of called methods, which are instantiated when the template is replayed,
+ * so every method is analyzed only once regardless of number of call sites.
+ * Lifelines of the analyzed method instance refer to the variable name of
+ * the caller, combined fragments are relative to the fragments of the call
+ * site. Variable name null stands for the instance the template is recorded
+ * for.
+ */
+public class MethodSequence {
+
+    private final String sourceFile;
+    private final List<Entry> entries = new ArrayList<>();
+    private CombFragmentContext lastFragments = CombFragmentContext.EMPTY;
+
+    /**
+     * @param sourceFile source file of analyzed method, null if unknown
+     */
+    public MethodSequence(String sourceFile) {
+        this.sourceFile = sourceFile;
+    }
+
+    public String getSourceFile() {
+        return sourceFile;
+    }
+
+    public void addMessage(MessageType type, String name, String targetVariable, String targetClass, String targetPackage,
+            String sourceVariable, String sourceClass, String sourcePackage, List<CombFragment> fragments) {
+        entries.add(new Entry(type, name, targetVariable, targetClass, targetPackage,
+                sourceVariable, sourceClass, sourcePackage, toContext(fragments), null));
+    }
+
+    /**
+     * Appends call of another method. Variable name of called instance
+     * replaces caller variable of the callee template, null keeps the
+     * variable of this template.
+     */
+    public void addSequence(MethodSequence sequence, String variableName, List<CombFragment> fragments) {
+        entries.add(new Entry(null, null, variableName, null, null, null, null, null, toContext(fragments), sequence));
+    }
+
+    /**
+     * Returns context of given fragments, entries of one call site have equal
+     * fragments and share one context.
+     */
+    private CombFragmentContext toContext(List<CombFragment> fragments) {
+        if (!lastFragments.equals(fragments)) {
+            lastFragments = CombFragmentContext.of(fragments);
+        }
+        return lastFragments;
+    }
+
+    public List<MethodSequence> getCalledSequences() {
+        List<MethodSequence> sequences = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.sequence != null) {
+                sequences.add(entry.sequence);
+            }
+        }
+        return sequences;
+    }
+
+    /**
+     * Adds messages of the template to the diagram as called from instance
+     * with given variable name. Bodies of calls nested deeper than maximal
+     * call depth and of recursive calls are not expanded. Call is added only
+     * if the message budget has room for the call and its return, the return
+     * is then added without consuming the budget. Once a call does not fit
+     * only returns of open calls are added, so truncated diagram stays
+     * balanced. Messages already in the diagram are taken from the budget.
+     * Template is not modified by the replay, so it may be replayed by
+     * multiple threads. Called templates are replayed from an explicit stack
+     * of frames, so deep call chains do not grow the thread stack.
+     *
+     * @return false if the diagram was truncated because of message budget
+     */
+    public boolean replay(SeqDiagram diagram, String variableName, int maxCallDepth, MessageBudget messageBudget) {
+        messageBudget.consume(diagram.getMessageCount());
+        Replay replay = new Replay(diagram, maxCallDepth, messageBudget);
+        replay.enter(this, variableName, CombFragmentContext.EMPTY, 1);
+        while (!replay.frames.isEmpty()) {
+            Frame frame = replay.frames.peek();
+            if (frame.position == frame.sequence.entries.size() || (replay.truncated && frame.openCalls == 0)) {
+                replay.leave();
+            } else {
+                replayEntry(replay, frame, frame.sequence.entries.get(frame.position++));
+            }
+        }
+        return !replay.truncated;
+    }
+
+    private static void replayEntry(Replay replay, Frame frame, Entry entry) {
+        boolean closesCall = entry.type == MessageType.RETURN && frame.openCalls > 0;
+        if (replay.truncated && !closesCall) {
+            return;
+        }
+        CombFragmentContext messageFragments = frame.getMessageFragments(entry.fragments);
+        String targetVariable = entry.targetVariable == null ? frame.variableName : entry.targetVariable;
+        if (entry.sequence != null) {
+            if (frame.depth < replay.maxCallDepth && !replay.activeSequences.contains(entry.sequence)) {
+                replay.enter(entry.sequence, targetVariable, messageFragments, frame.depth + 1);
+            }
+            return;
+        }
+        if (!closesCall && !replay.messageBudget.reserve(entry.type == MessageType.RETURN ? 1 : 2)) {
+            replay.truncated = true;
+            return;
+        }
+        String sourceVariable = entry.sourceVariable == null ? frame.variableName : entry.sourceVariable;
+        replay.diagram.addMessage(new MessageImpl(replay.messageCount++, entry.type, entry.name,
+                replay.diagram.getLifeline(targetVariable + entry.targetClass, entry.targetPackage),
+                replay.diagram.getLifeline(sourceVariable + entry.sourceClass, entry.sourcePackage), messageFragments));
+        if (closesCall) {
+            frame.openCalls--;
+        } else if (entry.type != MessageType.RETURN) {
+            frame.openCalls++;
+        }
+    }
+
+    private static class Replay {
+
+        private final SeqDiagram diagram;
+        private final int maxCallDepth;
+        private final MessageBudget messageBudget;
+        private final Set<MethodSequence> activeSequences = Collections.newSetFromMap(new IdentityHashMap<MethodSequence, Boolean>());
+        private final Deque<Frame> frames = new ArrayDeque<>();
+        private int messageCount;
+        private boolean truncated;
+
+        private Replay(SeqDiagram diagram, int maxCallDepth, MessageBudget messageBudget) {
+            this.diagram = diagram;
+            this.messageCount = diagram.getMessageCount();
+            this.maxCallDepth = maxCallDepth;
+            this.messageBudget = messageBudget;
+        }
+
+        private void enter(MethodSequence sequence, String variableName, CombFragmentContext fragments, int depth) {
+            activeSequences.add(sequence);
+            frames.push(new Frame(sequence, variableName, fragments, depth));
+        }
+
+        private void leave() {
+            activeSequences.remove(frames.pop().sequence);
+        }
+    }
+
+    /**
+     * Replay of one template instance, calls opened by the instance are
+     * counted so its returns are added after the diagram is truncated.
+     * Fragments of the call site are combined with fragments of an entry
+     * once, messages of the instance with the same entry fragments share
+     * the combined context.
+     */
+    private static class Frame {
+
+        private final MethodSequence sequence;
+        private final String variableName;
+        private final CombFragmentContext fragments;
+        private final int depth;
+        private int position;
+        private int openCalls;
+        private CombFragmentContext lastEntryFragments;
+        private CombFragmentContext lastMessageFragments;
+
+        private Frame(MethodSequence sequence, String variableName, CombFragmentContext fragments, int depth) {
+            this.sequence = sequence;
+            this.variableName = variableName;
+            this.fragments = fragments;
+            this.depth = depth;
+        }
+
+        private CombFragmentContext getMessageFragments(CombFragmentContext entryFragments) {
+            if (entryFragments != lastEntryFragments) {
+                lastEntryFragments = entryFragments;
+                if (fragments.isEmpty()) {
+                    lastMessageFragments = entryFragments;
+                } else if (entryFragments.isEmpty()) {
+                    lastMessageFragments = fragments;
+                } else {
+                    lastMessageFragments = fragments.appendAll(entryFragments);
+                }
+            }
+            return lastMessageFragments;
+        }
+    }
+
+    private static class Entry {
+
+        private final MessageType type;
+        private final String name;
+        private final String targetVariable;
+        private final String targetClass;
+        private final String targetPackage;
+        private final String sourceVariable;
+        private final String sourceClass;
+        private final String sourcePackage;
+        private final CombFragmentContext fragments;
+        private final MethodSequence sequence;
+
+        private Entry(MessageType type, String name, String targetVariable, String targetClass, String targetPackage,
+                String sourceVariable, String sourceClass, String sourcePackage, CombFragmentContext fragments, MethodSequence sequence) {
+            this.type = type;
+            this.name = name;
+            this.targetVariable = targetVariable;
+            this.targetClass = targetClass;
+            this.targetPackage = targetPackage;
+            this.sourceVariable = sourceVariable;
+            this.sourceClass = sourceClass;
+            this.sourcePackage = sourcePackage;
+            this.fragments = fragments;
+            this.sequence = sequence;
+        }
+    }
+}
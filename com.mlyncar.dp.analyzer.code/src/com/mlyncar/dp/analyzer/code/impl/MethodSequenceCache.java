@@ -0,0 +1,141 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps message templates extracted from methods of a project between
+ * synchronizations. Templates are dropped when source file of their method
+ * or of any method they call is changed, all templates are dropped when
+ * source files are added or removed because method calls may bind
+ * differently. Templates of methods with unknown source are dropped after
+ * any change. Caches are kept only for incremental analysis and they are
+ * dropped when their project is closed, deleted or renamed. Methods of the
+ * cache are synchronized, analysis of a project holds the lock of its cache
+ * so that overlapping runs do not see templates being created.
+ */
+public class MethodSequenceCache {
+
+    private static final Map<String, MethodSequenceCache> projectCaches = new HashMap<>();
+
+    private final Logger logger = LoggerFactory.getLogger(MethodSequenceCache.class);
+    private final Map<String, MethodSequence> sequences = new HashMap<>();
+
+    private MethodSequenceCache() {
+    }
+
+    public static synchronized MethodSequenceCache getInstance(String projectName) {
+        MethodSequenceCache cache = projectCaches.get(projectName);
+        if (cache == null) {
+            cache = new MethodSequenceCache();
+            projectCaches.put(projectName, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Returns cache used by a single analysis only, cache kept for the
+     * project is dropped.
+     */
+    public static synchronized MethodSequenceCache createUnshared(String projectName) {
+        removeInstance(projectName);
+        return new MethodSequenceCache();
+    }
+
+    public static synchronized void removeInstance(String projectName) {
+        if (projectCaches.remove(projectName) != null) {
+            LoggerFactory.getLogger(MethodSequenceCache.class).debug("Dropping cached method sequences of project {}", projectName);
+        }
+    }
+
+    public synchronized MethodSequence getSequence(String methodKey) {
+        return sequences.get(methodKey);
+    }
+
+    public synchronized void putSequence(String methodKey, MethodSequence sequence) {
+        sequences.put(methodKey, sequence);
+    }
+
+    public synchronized void invalidate(Set<String> changedFiles, boolean filesAddedOrRemoved) {
+        if (filesAddedOrRemoved) {
+            logger.debug("Source files were added or removed, dropping {} cached method sequences", sequences.size());
+            sequences.clear();
+            return;
+        }
+        if (changedFiles.isEmpty()) {
+            return;
+        }
+        Map<MethodSequence, List<MethodSequence>> callers = new IdentityHashMap<>();
+        Set<MethodSequence> invalidSequences = Collections.newSetFromMap(new IdentityHashMap<MethodSequence, Boolean>());
+        Deque<MethodSequence> queue = new ArrayDeque<>();
+        for (MethodSequence sequence : sequences.values()) {
+            for (MethodSequence called : sequence.getCalledSequences()) {
+                List<MethodSequence> calledBy = callers.get(called);
+                if (calledBy == null) {
+                    calledBy = new ArrayList<>();
+                    callers.put(called, calledBy);
+                }
+                calledBy.add(sequence);
+            }
+            if (sequence.getSourceFile() == null || changedFiles.contains(sequence.getSourceFile())) {
+                invalidSequences.add(sequence);
+                queue.add(sequence);
+            }
+        }
+        while (!queue.isEmpty()) {
+            List<MethodSequence> calledBy = callers.get(queue.poll());
+            if (calledBy != null) {
+                for (MethodSequence caller : calledBy) {
+                    if (invalidSequences.add(caller)) {
+                        queue.add(caller);
+                    }
+                }
+            }
+        }
+        Iterator<MethodSequence> it = sequences.values().iterator();
+        while (it.hasNext()) {
+            if (invalidSequences.contains(it.next())) {
+                it.remove();
+            }
+        }
+        logger.debug("Number of cached method sequences after invalidation {}", sequences.size());
+    }
+
+    public synchronized void clear() {
+        sequences.clear();
+    }
+
+    /**
+     * Drops caches of projects which are closed, deleted or renamed.
+     */
+    public static class ProjectListener implements IResourceChangeListener {
+
+        @Override
+        public void resourceChanged(IResourceChangeEvent event) {
+            if (event.getType() == IResourceChangeEvent.POST_CHANGE) {
+                if (event.getDelta() != null) {
+                    for (IResourceDelta delta : event.getDelta().getAffectedChildren(IResourceDelta.REMOVED)) {
+                        removeInstance(delta.getResource().getName());
+                    }
+                }
+            } else if (event.getResource() instanceof IProject) {
+                removeInstance(event.getResource().getName());
+            }
+        }
+    }
+}
@@ -1,12 +1,42 @@
 package com.mlyncar.dp.analyzer.code.service;
 
+import java.util.List;
+import java.util.Set;
+
 import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
 import com.mlyncar.dp.analyzer.code.impl.KdmAnalyzer;
+import com.mlyncar.dp.analyzer.config.AnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.config.ProjectContext;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
 
 public class CodeAnalyzerService {
 
+	private final AnalyzerConfiguration configuration;
+	private final ProjectContext projectContext;
+
+	public CodeAnalyzerService() {
+		this(new AnalyzerConfiguration());
+	}
+
+	public CodeAnalyzerService(AnalyzerConfiguration configuration) {
+		this(configuration, null);
+	}
+
+	public CodeAnalyzerService(AnalyzerConfiguration configuration, ProjectContext projectContext) {
+		this.configuration = configuration;
+		this.projectContext = projectContext;
+	}
+
 	public SeqDiagram getSequenceDiagramFromCode() throws SourceCodeAnalyzerException {
-		return new KdmAnalyzer().extractSequenceDiagramFromMain();
+		return new KdmAnalyzer(configuration, projectContext).extractSequenceDiagramFromMain();
+	}
+
+	public List<SeqDiagram> getSequenceDiagramsFromCode(Set<String> interactionNames) throws SourceCodeAnalyzerException {
+		return new KdmAnalyzer(configuration, projectContext).extractSequenceDiagrams(interactionNames);
+	}
+
+	public List<SeqDiagram> getSequenceDiagramsFromCode(Set<String> interactionNames, MessageSinkFactory sinkFactory) throws SourceCodeAnalyzerException {
+		return new KdmAnalyzer(configuration, projectContext).extractSequenceDiagrams(interactionNames, sinkFactory);
 	}
 }
@@ -1,9 +1,14 @@
 package com.mlyncar.dp.analyzer.uml;
 
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
+import com.mlyncar.dp.analyzer.uml.impl.UmlModelCache;
+
 /**
  * The activator class controls the plug-in life cycle
  */
@@ -15,6 +20,8 @@ public class Activator extends AbstractUIPlugin {
     // The shared instance
     private static Activator plugin;
 
+    private final IResourceChangeListener projectListener = new UmlModelCache.ProjectListener();
+
     /**
      * The constructor
      */
@@ -28,6 +35,8 @@ public class Activator extends AbstractUIPlugin {
     public void start(BundleContext context) throws Exception {
         super.start(context);
         plugin = this;
+        ResourcesPlugin.getWorkspace().addResourceChangeListener(projectListener,
+                IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE | IResourceChangeEvent.POST_CHANGE);
     }
 
     /*
@@ -35,6 +44,7 @@ public class Activator extends AbstractUIPlugin {
 	 * @see org.eclipse.ui.plugin.AbstractUIPlugin#stop(org.osgi.framework.BundleContext)
      */
     public void stop(BundleContext context) throws Exception {
+        ResourcesPlugin.getWorkspace().removeResourceChangeListener(projectListener);
         plugin = null;
         super.stop(context);
     }
@@ -17,6 +17,7 @@ package com.mlyncar.dp.analyzer.uml;
 
 import java.util.List;
 
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
 import com.mlyncar.dp.analyzer.exception.AnalyzerException;
 import com.mlyncar.dp.analyzer.uml.exception.InteractionNotFoundException;
@@ -33,5 +34,14 @@ public interface UmlAnalyzer {
 
     public List<SeqDiagram> analyzeUmlModel() throws AnalyzerException;
 
+    /**
+     * Analyzes the model like {@link #analyzeUmlModel(String)}, messages of
+     * every eagerly analyzed diagram are passed to sink created by given
+     * factory.
+     */
+    public List<SeqDiagram> analyzeUmlModel(String pathToModel, MessageSinkFactory sinkFactory) throws AnalyzerException;
+
+    public List<SeqDiagram> analyzeUmlModel(MessageSinkFactory sinkFactory) throws AnalyzerException;
+
     public SeqDiagram analyzeSequenceDiagram(String diagramName) throws AnalyzerException;
 }
@@ -0,0 +1,17 @@
+package com.mlyncar.dp.analyzer.uml.exception;
+
+public class XmiReadException extends Exception {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 2874165305283216391L;
+
+    public XmiReadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public XmiReadException(String message) {
+        super(message);
+    }
+}
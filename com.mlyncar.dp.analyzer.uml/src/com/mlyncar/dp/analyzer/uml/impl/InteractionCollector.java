@@ -0,0 +1,56 @@
+package com.mlyncar.dp.analyzer.uml.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.uml2.uml.Behavior;
+import org.eclipse.uml2.uml.BehavioredClassifier;
+import org.eclipse.uml2.uml.Classifier;
+import org.eclipse.uml2.uml.Component;
+import org.eclipse.uml2.uml.Interaction;
+import org.eclipse.uml2.uml.PackageableElement;
+
+/**
+ * Collects interactions of UML model in model order. Only packaged elements
+ * of packages and components, owned behaviors and nested classifiers are
+ * visited, other elements such as attributes, operations or fragments of
+ * interactions are skipped without being traversed.
+ */
+public class InteractionCollector {
+
+    public List<Interaction> collect(Resource resource) {
+        List<Interaction> interactions = new ArrayList<>();
+        for (EObject root : resource.getContents()) {
+            visit(root, interactions);
+        }
+        return interactions;
+    }
+
+    private void visit(EObject object, List<Interaction> interactions) {
+        if (object instanceof Interaction) {
+            interactions.add((Interaction) object);
+        }
+        if (object instanceof org.eclipse.uml2.uml.Package) {
+            for (PackageableElement element : ((org.eclipse.uml2.uml.Package) object).getPackagedElements()) {
+                visit(element, interactions);
+            }
+        }
+        if (object instanceof Component) {
+            for (PackageableElement element : ((Component) object).getPackagedElements()) {
+                visit(element, interactions);
+            }
+        }
+        if (object instanceof BehavioredClassifier) {
+            for (Behavior behavior : ((BehavioredClassifier) object).getOwnedBehaviors()) {
+                visit(behavior, interactions);
+            }
+        }
+        if (object instanceof org.eclipse.uml2.uml.Class) {
+            for (Classifier classifier : ((org.eclipse.uml2.uml.Class) object).getNestedClassifiers()) {
+                visit(classifier, interactions);
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.mlyncar.dp.analyzer.uml.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.uml2.uml.Interaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.config.AnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.config.ProjectContext;
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.CombFragmentType;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
+import com.mlyncar.dp.analyzer.entity.MessageType;
+import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+import com.mlyncar.dp.analyzer.entity.impl.CombFragmentContext;
+import com.mlyncar.dp.analyzer.entity.impl.CombFragmentImpl;
+import com.mlyncar.dp.analyzer.entity.impl.MessageImpl;
+import com.mlyncar.dp.analyzer.entity.impl.SeqDiagramImpl;
+import com.mlyncar.dp.analyzer.exception.AnalyzerException;
+import com.mlyncar.dp.analyzer.exception.CombFragmentException;
+import com.mlyncar.dp.analyzer.helper.EclipseProjectNavigatorHelper;
+import com.mlyncar.dp.analyzer.test.TestHelper;
+import com.mlyncar.dp.analyzer.uml.UmlAnalyzer;
+import com.mlyncar.dp.analyzer.uml.exception.InteractionNotFoundException;
+import com.mlyncar.dp.analyzer.uml.exception.XmiReadException;
+import com.mlyncar.dp.analyzer.uml.impl.XmiInteractionReader.XmiCombinedFragment;
+import com.mlyncar.dp.analyzer.uml.impl.XmiInteractionReader.XmiInteraction;
+import com.mlyncar.dp.analyzer.uml.impl.XmiInteractionReader.XmiMessage;
+import com.mlyncar.dp.analyzer.uml.impl.XmiInteractionReader.XmiOccurrence;
+
+/**
+ * Analyzes sequence diagrams from XMI stream of the UML model, producing the
+ * same messages and fragments as XmiUmlAnalyzer. EMF model and notation are
+ * loaded only when interaction of a diagram is requested for modification.
+ * Models which cannot be streamed are analyzed by XmiUmlAnalyzer. When
+ * validation is enabled, the model is analyzed by XmiUmlAnalyzer as well and
+ * differences of the diagrams are reported.
+ */
+public class StaxUmlAnalyzer implements UmlAnalyzer {
+
+    private final Logger logger = LoggerFactory.getLogger(StaxUmlAnalyzer.class);
+    private final AnalyzerConfiguration configuration;
+    private final ProjectContext projectContext;
+    private final UmlAnalyzer emfAnalyzer;
+
+    public StaxUmlAnalyzer() {
+        this(new AnalyzerConfiguration());
+    }
+
+    public StaxUmlAnalyzer(AnalyzerConfiguration configuration) {
+        this(configuration, null);
+    }
+
+    /**
+     * @param projectContext analyzed project, model of project selected in
+     * the workbench is analyzed when null
+     */
+    public StaxUmlAnalyzer(AnalyzerConfiguration configuration, ProjectContext projectContext) {
+        this.configuration = configuration;
+        this.projectContext = projectContext;
+        this.emfAnalyzer = new XmiUmlAnalyzer(configuration, projectContext);
+    }
+
+    @Override
+    public List<SeqDiagram> analyzeUmlModel() throws AnalyzerException {
+        return analyzeUmlModel(getModelPath());
+    }
+
+    @Override
+    public List<SeqDiagram> analyzeUmlModel(MessageSinkFactory sinkFactory) throws AnalyzerException {
+        return analyzeUmlModel(getModelPath(), sinkFactory);
+    }
+
+    @Override
+    public List<SeqDiagram> analyzeUmlModel(String pathToModel) throws AnalyzerException {
+        return analyzeUmlModel(pathToModel, null);
+    }
+
+    @Override
+    public List<SeqDiagram> analyzeUmlModel(String pathToModel, MessageSinkFactory sinkFactory) throws AnalyzerException {
+        try {
+            EmfModelLink modelLink = new EmfModelLink(pathToModel);
+            List<SeqDiagram> diagrams = new ArrayList<>();
+            for (XmiInteraction interaction : new XmiInteractionReader().read(pathToModel)) {
+                if (configuration.isUmlDiagramAccepted(interaction.qualifiedName)) {
+                    diagrams.add(analyzeInteraction(interaction, modelLink, sinkFactory));
+                } else {
+                    logger.debug("Interaction {} is filtered out", interaction.qualifiedName);
+                }
+            }
+            if (configuration.isValidationEnabled()) {
+                logger.debug("Comparing streamed diagrams of {} with diagrams analyzed by EMF", pathToModel);
+                TestHelper.compareDiagrams(emfAnalyzer.analyzeUmlModel(pathToModel), diagrams);
+            }
+            return diagrams;
+        } catch (XmiReadException ex) {
+            logger.warn("Unable to stream UML model {}, analyzing it with EMF: {}", pathToModel, ex.getMessage());
+            return emfAnalyzer.analyzeUmlModel(pathToModel, sinkFactory);
+        }
+    }
+
+    @Override
+    public SeqDiagram analyzeSequenceDiagram(String pathToDiagram, String diagramName) throws InteractionNotFoundException, AnalyzerException {
+        try {
+            for (XmiInteraction interaction : new XmiInteractionReader().read(pathToDiagram)) {
+                if (diagramName.equals(interaction.name)) {
+                    return analyzeInteraction(interaction, new EmfModelLink(pathToDiagram), null);
+                }
+            }
+        } catch (XmiReadException ex) {
+            logger.warn("Unable to stream UML model {}, analyzing it with EMF: {}", pathToDiagram, ex.getMessage());
+            return emfAnalyzer.analyzeSequenceDiagram(pathToDiagram, diagramName);
+        }
+        throw new InteractionNotFoundException("Interaction with name " + diagramName + " not found.");
+    }
+
+    @Override
+    public SeqDiagram analyzeSequenceDiagram(String diagramName) throws AnalyzerException {
+        try {
+            return analyzeSequenceDiagram(getModelPath(), diagramName);
+        } catch (InteractionNotFoundException ex) {
+            throw new AnalyzerException("Unable to analyze sequence diagram: ", ex);
+        }
+    }
+
+    private String getModelPath() {
+        return projectContext == null ? EclipseProjectNavigatorHelper.getCurrentProjectModel() : projectContext.getModelPath();
+    }
+
+    private SeqDiagram analyzeInteraction(final XmiInteraction interaction, final EmfModelLink modelLink, MessageSinkFactory sinkFactory)
+            throws AnalyzerException, XmiReadException {
+        SeqDiagram diagram = new SeqDiagramImpl();
+        diagram.setName(interaction.name);
+        diagram.setId(interaction.qualifiedName);
+        diagram.setInteractionProvider(new Supplier<Object>() {
+            @Override
+            public Object get() {
+                return modelLink.getInteraction(interaction);
+            }
+        });
+        diagram.setInteractionResourceHolderProvider(new Supplier<Object>() {
+            @Override
+            public Object get() {
+                return modelLink.getResource();
+            }
+        });
+        diagram.setNotationResourceProvider(new Supplier<Object>() {
+            @Override
+            public Object get() {
+                return modelLink.getNotationResource();
+            }
+        });
+        if (sinkFactory != null) {
+            diagram.setMessageSink(sinkFactory.createMessageSink(diagram), configuration.isStreamedMessagesRetained());
+        }
+        diagram.setExpectedMessageCount(interaction.messages.size());
+        Map<String, XmiMessage> messagesBySendEvent = new HashMap<>();
+        for (XmiMessage umlMessage : interaction.messages) {
+            if (umlMessage.sendEventId != null) {
+                messagesBySendEvent.put(umlMessage.sendEventId, umlMessage);
+            }
+        }
+        analyzeFragmentSet(interaction, interaction.fragments, messagesBySendEvent, diagram, CombFragmentContext.EMPTY);
+        if (configuration.isValidationEnabled()) {
+            TestHelper.validateDiagram(diagram);
+        }
+        return diagram;
+    }
+
+    private void analyzeFragmentSet(XmiInteraction interaction, List<Object> fragmentSet, Map<String, XmiMessage> messagesBySendEvent,
+            SeqDiagram diagram, CombFragmentContext fragments) throws AnalyzerException, XmiReadException {
+        int counter = 0;
+        for (Object object : fragmentSet) {
+            if (object instanceof XmiOccurrence) {
+                XmiOccurrence occurrence = (XmiOccurrence) object;
+                XmiMessage umlMessage = occurrence.id == null ? null : messagesBySendEvent.get(occurrence.id);
+                if (umlMessage == null) {
+                    continue;
+                }
+                XmiOccurrence receiveOccurrence = getOccurrence(interaction, umlMessage.receiveEventId);
+                String sourceLifeline = getLifelineName(interaction, occurrence.coveredId);
+                String targetLifeline = getLifelineName(interaction, receiveOccurrence.coveredId);
+                MessageType type;
+                if ("synchCall".equals(umlMessage.sort)) {
+                    type = receiveOccurrence.coveredId.equals(occurrence.coveredId) ? MessageType.SELF : MessageType.SYNCH;
+                } else if ("reply".equals(umlMessage.sort)) {
+                    type = MessageType.RETURN;
+                } else {
+                    continue;
+                }
+                Message message = new MessageImpl(counter++, type, umlMessage.name,
+                        diagram.getLifeline(targetLifeline), diagram.getLifeline(sourceLifeline), fragments);
+                logger.debug("Creating {} message {} from lifeline {} to lifeline {}", type.getCode(), message.getName(), sourceLifeline, targetLifeline);
+                diagram.addMessage(message);
+            } else if (object instanceof XmiCombinedFragment) {
+                XmiCombinedFragment umlCombFragment = (XmiCombinedFragment) object;
+                try {
+                    CombFragment fragment = new CombFragmentImpl(umlCombFragment.guard, CombFragmentType.fromCode(umlCombFragment.operator));
+                    analyzeFragmentSet(interaction, umlCombFragment.fragments, messagesBySendEvent, diagram, fragments.prepend(fragment));
+                } catch (CombFragmentException e) {
+                    throw new AnalyzerException("Unable to process seq diagram analysis, combined fragment cannot be created.", e);
+                }
+            }
+        }
+    }
+
+    private XmiOccurrence getOccurrence(XmiInteraction interaction, String id) throws XmiReadException {
+        XmiOccurrence occurrence = id == null ? null : interaction.occurrences.get(id);
+        if (occurrence == null) {
+            throw new XmiReadException("Message occurrence " + id + " not found in interaction " + interaction.name);
+        }
+        return occurrence;
+    }
+
+    private String getLifelineName(XmiInteraction interaction, String id) throws XmiReadException {
+        if (id == null || !interaction.lifelineNames.containsKey(id)) {
+            throw new XmiReadException("Lifeline " + id + " not found in interaction " + interaction.name);
+        }
+        return interaction.lifelineNames.get(id);
+    }
+
+    /**
+     * EMF model of streamed diagrams, loaded once for all diagrams of one
+     * analysis when any of them needs it.
+     */
+    private static class EmfModelLink {
+
+        private final UmlModelCache modelCache;
+        private Resource resource;
+
+        private EmfModelLink(String pathToModel) {
+            this.modelCache = UmlModelCache.getInstance(pathToModel);
+        }
+
+        private synchronized Resource getResource() {
+            if (resource == null) {
+                resource = modelCache.getModelResource();
+            }
+            return resource;
+        }
+
+        private Interaction getInteraction(XmiInteraction interaction) {
+            Resource modelResource = getResource();
+            EObject object = interaction.id == null ? null : modelResource.getEObject(interaction.id);
+            if (object instanceof Interaction) {
+                return (Interaction) object;
+            }
+            return modelCache.getInteractionIndex(modelResource).get(interaction.name);
+        }
+
+        private Resource getNotationResource() {
+            return modelCache.getNotationResource(getResource());
+        }
+    }
+}
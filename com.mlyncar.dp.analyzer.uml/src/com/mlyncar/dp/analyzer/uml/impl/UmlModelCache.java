@@ -0,0 +1,242 @@
+package com.mlyncar.dp.analyzer.uml.impl;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.uml2.uml.Interaction;
+import org.eclipse.uml2.uml.UMLPackage;
+import org.eclipse.uml2.uml.resource.UMLResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps UML model of a project and its notation loaded in one resource set
+ * between synchronizations. Resources are loaded again when their file is
+ * changed or when they were modified in memory without being saved. Notation
+ * is loaded only when it is requested. Interactions of loaded model are
+ * indexed by name. Caches are dropped and their resources unloaded when
+ * the project of the model is closed or deleted, or when the model file is
+ * removed.
+ */
+public class UmlModelCache {
+
+    private static final Map<String, UmlModelCache> modelCaches = new HashMap<>();
+
+    static {
+        Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap()
+                .put(UMLResource.FILE_EXTENSION, UMLResource.Factory.INSTANCE);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(UmlModelCache.class);
+    private final File modelFile;
+    private final File notationFile;
+    private ResourceSet resourceSet;
+    private Resource modelResource;
+    private Resource notationResource;
+    private FileStamp modelStamp;
+    private FileStamp notationStamp;
+    private List<Interaction> interactions;
+    private Map<String, Interaction> interactionIndex;
+
+    private UmlModelCache(String pathToModel) {
+        this.modelFile = new File(pathToModel);
+        this.notationFile = new File(pathToModel.substring(0, pathToModel.lastIndexOf('.')) + ".notation");
+    }
+
+    public static synchronized UmlModelCache getInstance(String pathToModel) {
+        UmlModelCache cache = modelCaches.get(pathToModel);
+        if (cache == null) {
+            cache = new UmlModelCache(pathToModel);
+            modelCaches.put(pathToModel, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Drops caches of models stored in given directory.
+     */
+    public static synchronized void removeInstances(String directoryPath) {
+        String prefix = directoryPath.endsWith("/") ? directoryPath : directoryPath + "/";
+        Iterator<Map.Entry<String, UmlModelCache>> it = modelCaches.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, UmlModelCache> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                it.remove();
+                entry.getValue().unload();
+            }
+        }
+    }
+
+    /**
+     * Drops caches of models whose file does not exist anymore.
+     */
+    public static synchronized void removeMissingInstances() {
+        Iterator<UmlModelCache> it = modelCaches.values().iterator();
+        while (it.hasNext()) {
+            UmlModelCache cache = it.next();
+            if (!cache.modelFile.exists()) {
+                it.remove();
+                cache.unload();
+            }
+        }
+    }
+
+    public synchronized Resource getModelResource() {
+        if (modelResource == null || isChanged()) {
+            reset();
+            logger.debug("Loading UML model {}", modelFile.getAbsolutePath());
+            modelStamp = new FileStamp(modelFile);
+            modelResource = resourceSet.getResource(URI.createFileURI(modelFile.getAbsolutePath()), true);
+            modelResource.setTrackingModification(true);
+        }
+        return modelResource;
+    }
+
+    /**
+     * Returns notation of the model loaded to the same resource set as given
+     * model resource.
+     */
+    public synchronized Resource getNotationResource(Resource forModelResource) {
+        if (forModelResource != modelResource) {
+            logger.debug("UML model was reloaded, loading notation to resource set of the analyzed model");
+            return forModelResource.getResourceSet().getResource(URI.createFileURI(notationFile.getAbsolutePath()), true);
+        }
+        if (notationResource == null) {
+            logger.debug("Loading notation model {}", notationFile.getAbsolutePath());
+            notationStamp = new FileStamp(notationFile);
+            notationResource = resourceSet.getResource(URI.createFileURI(notationFile.getAbsolutePath()), true);
+            notationResource.setTrackingModification(true);
+        }
+        return notationResource;
+    }
+
+    /**
+     * Returns interactions of given model resource in model order.
+     */
+    public synchronized List<Interaction> getInteractions(Resource forModelResource) {
+        if (forModelResource != modelResource) {
+            return Collections.unmodifiableList(new InteractionCollector().collect(forModelResource));
+        }
+        if (interactions == null) {
+            interactions = Collections.unmodifiableList(new InteractionCollector().collect(modelResource));
+            logger.debug("Number of interactions in model {}", interactions.size());
+        }
+        return interactions;
+    }
+
+    /**
+     * Returns interactions of given model resource by their name, the first
+     * interaction in model order is indexed for duplicate names.
+     */
+    public synchronized Map<String, Interaction> getInteractionIndex(Resource forModelResource) {
+        if (forModelResource != modelResource) {
+            return createInteractionIndex(getInteractions(forModelResource));
+        }
+        if (interactionIndex == null) {
+            interactionIndex = createInteractionIndex(getInteractions(modelResource));
+        }
+        return interactionIndex;
+    }
+
+    private Map<String, Interaction> createInteractionIndex(List<Interaction> modelInteractions) {
+        Map<String, Interaction> index = new HashMap<>();
+        for (Interaction interaction : modelInteractions) {
+            if (interaction.getName() != null && !index.containsKey(interaction.getName())) {
+                index.put(interaction.getName(), interaction);
+            }
+        }
+        logger.debug("Number of indexed interactions {}", index.size());
+        return Collections.unmodifiableMap(index);
+    }
+
+    private boolean isChanged() {
+        if (!modelStamp.equals(new FileStamp(modelFile)) || modelResource.isModified()) {
+            return true;
+        }
+        return notationResource != null
+                && (!notationStamp.equals(new FileStamp(notationFile)) || notationResource.isModified());
+    }
+
+    private synchronized void unload() {
+        logger.debug("Dropping cached UML model {}", modelFile.getAbsolutePath());
+        if (resourceSet != null) {
+            for (Resource loadedResource : resourceSet.getResources()) {
+                loadedResource.unload();
+            }
+            resourceSet.getResources().clear();
+        }
+        resourceSet = null;
+        modelResource = null;
+        notationResource = null;
+        interactions = null;
+        interactionIndex = null;
+    }
+
+    private void reset() {
+        resourceSet = new ResourceSetImpl();
+        resourceSet.getPackageRegistry().put(UMLPackage.eNS_URI, UMLPackage.eINSTANCE);
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap()
+                .put(UMLResource.FILE_EXTENSION, UMLResource.Factory.INSTANCE);
+        modelResource = null;
+        notationResource = null;
+        notationStamp = null;
+        interactions = null;
+        interactionIndex = null;
+    }
+
+    /**
+     * Drops caches of models of projects which are closed, deleted or
+     * renamed.
+     */
+    public static class ProjectListener implements IResourceChangeListener {
+
+        @Override
+        public void resourceChanged(IResourceChangeEvent event) {
+            if (event.getType() == IResourceChangeEvent.POST_CHANGE) {
+                if (event.getDelta() != null && event.getDelta().getAffectedChildren(IResourceDelta.REMOVED).length > 0) {
+                    removeMissingInstances();
+                }
+            } else if (event.getResource() instanceof IProject && event.getResource().getLocation() != null) {
+                removeInstances(event.getResource().getLocation().toString());
+            }
+        }
+    }
+
+    private static class FileStamp {
+
+        private final long lastModified;
+        private final long length;
+
+        private FileStamp(File file) {
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FileStamp)) {
+                return false;
+            }
+            FileStamp other = (FileStamp) obj;
+            return lastModified == other.lastModified && length == other.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (lastModified ^ (lastModified >>> 32)) * 31 + (int) length;
+        }
+    }
+}
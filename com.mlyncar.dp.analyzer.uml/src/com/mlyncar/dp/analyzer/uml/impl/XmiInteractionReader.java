@@ -0,0 +1,326 @@
+package com.mlyncar.dp.analyzer.uml.impl;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.mlyncar.dp.analyzer.uml.exception.XmiReadException;
+
+/**
+ * Reads interactions of UML model serialized in XMI as a stream of events,
+ * without creating EMF objects. Interactions are visited in the same way as
+ * by InteractionCollector and only names and references needed for the
+ * analysis of messages and combined fragments are kept.
+ */
+public class XmiInteractionReader {
+
+    private static final Set<String> INTERACTION_FEATURES = new HashSet<>(Arrays.asList("packagedElement", "ownedBehavior", "nestedClassifier"));
+    private static final Set<String> OCCURRENCE_TYPES = new HashSet<>(Arrays.asList("MessageOccurrenceSpecification", "DestructionOccurrenceSpecification"));
+    private static final Set<String> COMBINED_FRAGMENT_TYPES = new HashSet<>(Arrays.asList("CombinedFragment", "ConsiderIgnoreFragment"));
+    private static final String INTERACTION_TYPE = "Interaction";
+    private static final String INTERFACE_TYPE = "Interface";
+    private static final String LITERAL_STRING_TYPE = "LiteralString";
+    private static final String DEFAULT_MESSAGE_SORT = "synchCall";
+    private static final String DEFAULT_INTERACTION_OPERATOR = "seq";
+
+    /**
+     * Returns interactions of the model in model order.
+     */
+    public List<XmiInteraction> read(String pathToModel) throws XmiReadException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try (InputStream input = new BufferedInputStream(new FileInputStream(pathToModel))) {
+            XMLStreamReader reader = factory.createXMLStreamReader(input);
+            try {
+                List<XmiInteraction> interactions = new ArrayList<>();
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                        if ("XMI".equals(reader.getLocalName())) {
+                            readRoots(reader, interactions);
+                        } else {
+                            readElement(reader, interactions, reader.getAttributeValue(null, "name"));
+                        }
+                        break;
+                    }
+                }
+                return interactions;
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException ex) {
+            throw new XmiReadException("Unable to read UML model " + pathToModel, ex);
+        }
+    }
+
+    private void readRoots(XMLStreamReader reader, List<XmiInteraction> interactions) throws XMLStreamException, XmiReadException {
+        while (nextChild(reader)) {
+            readElement(reader, interactions, reader.getAttributeValue(null, "name"));
+        }
+    }
+
+    /**
+     * @param qualifiedName qualified name of current element, null if the
+     * element or any of its namespaces has no name
+     */
+    private void readElement(XMLStreamReader reader, List<XmiInteraction> interactions, String qualifiedName) throws XMLStreamException, XmiReadException {
+        String type = getType(reader);
+        if (INTERACTION_TYPE.equals(type)) {
+            readInteraction(reader, interactions, qualifiedName);
+            return;
+        }
+        while (nextChild(reader)) {
+            if (INTERACTION_FEATURES.contains(reader.getLocalName())
+                    && !(INTERFACE_TYPE.equals(type) && "nestedClassifier".equals(reader.getLocalName()))) {
+                readElement(reader, interactions, getQualifiedName(qualifiedName, reader.getAttributeValue(null, "name")));
+            } else {
+                skipElement(reader);
+            }
+        }
+    }
+
+    private void readInteraction(XMLStreamReader reader, List<XmiInteraction> interactions, String qualifiedName) throws XMLStreamException, XmiReadException {
+        XmiInteraction interaction = new XmiInteraction(getXmiAttribute(reader, "id"), reader.getAttributeValue(null, "name"), qualifiedName);
+        interactions.add(interaction);
+        while (nextChild(reader)) {
+            String feature = reader.getLocalName();
+            if ("lifeline".equals(feature)) {
+                interaction.lifelineNames.put(getXmiAttribute(reader, "id"), reader.getAttributeValue(null, "name"));
+                skipElement(reader);
+            } else if ("fragment".equals(feature)) {
+                readFragment(reader, interaction, interaction.fragments);
+            } else if ("message".equals(feature)) {
+                readMessage(reader, interaction);
+            } else if (INTERACTION_FEATURES.contains(feature)) {
+                readElement(reader, interactions, getQualifiedName(qualifiedName, reader.getAttributeValue(null, "name")));
+            } else {
+                skipElement(reader);
+            }
+        }
+    }
+
+    private void readFragment(XMLStreamReader reader, XmiInteraction interaction, List<Object> fragments) throws XMLStreamException, XmiReadException {
+        String type = getType(reader);
+        if (OCCURRENCE_TYPES.contains(type)) {
+            String id = getXmiAttribute(reader, "id");
+            String name = reader.getAttributeValue(null, "name");
+            String covered = getFirstReference(reader.getAttributeValue(null, "covered"));
+            while (nextChild(reader)) {
+                if ("covered".equals(reader.getLocalName()) && covered == null) {
+                    covered = readReferenceElement(reader);
+                } else {
+                    skipElement(reader);
+                }
+            }
+            XmiOccurrence occurrence = new XmiOccurrence(id, name, covered);
+            interaction.occurrences.put(id, occurrence);
+            fragments.add(occurrence);
+        } else if (COMBINED_FRAGMENT_TYPES.contains(type)) {
+            String operator = reader.getAttributeValue(null, "interactionOperator");
+            XmiCombinedFragment combinedFragment = new XmiCombinedFragment(operator == null ? DEFAULT_INTERACTION_OPERATOR : operator);
+            boolean firstOperand = true;
+            while (nextChild(reader)) {
+                if ("operand".equals(reader.getLocalName())) {
+                    readOperand(reader, interaction, combinedFragment, firstOperand);
+                    firstOperand = false;
+                } else {
+                    skipElement(reader);
+                }
+            }
+            fragments.add(combinedFragment);
+        } else {
+            skipElement(reader);
+        }
+    }
+
+    /**
+     * Only the first operand is analyzed, occurrences of other operands are
+     * kept because they may be referenced by messages.
+     */
+    private void readOperand(XMLStreamReader reader, XmiInteraction interaction, XmiCombinedFragment combinedFragment, boolean firstOperand)
+            throws XMLStreamException, XmiReadException {
+        List<Object> fragments = firstOperand ? combinedFragment.fragments : new ArrayList<Object>();
+        while (nextChild(reader)) {
+            if ("guard".equals(reader.getLocalName()) && firstOperand) {
+                combinedFragment.guard = readGuard(reader);
+            } else if ("fragment".equals(reader.getLocalName())) {
+                readFragment(reader, interaction, fragments);
+            } else {
+                skipElement(reader);
+            }
+        }
+    }
+
+    private String readGuard(XMLStreamReader reader) throws XMLStreamException {
+        String guard = "";
+        while (nextChild(reader)) {
+            if ("specification".equals(reader.getLocalName()) && LITERAL_STRING_TYPE.equals(getType(reader))) {
+                guard = reader.getAttributeValue(null, "value");
+            }
+            skipElement(reader);
+        }
+        return guard;
+    }
+
+    private void readMessage(XMLStreamReader reader, XmiInteraction interaction) throws XMLStreamException, XmiReadException {
+        String name = reader.getAttributeValue(null, "name");
+        String sort = reader.getAttributeValue(null, "messageSort");
+        String sendEvent = reader.getAttributeValue(null, "sendEvent");
+        String receiveEvent = reader.getAttributeValue(null, "receiveEvent");
+        while (nextChild(reader)) {
+            if ("sendEvent".equals(reader.getLocalName())) {
+                sendEvent = readReferenceElement(reader);
+            } else if ("receiveEvent".equals(reader.getLocalName())) {
+                receiveEvent = readReferenceElement(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        interaction.messages.add(new XmiMessage(name, sort == null ? DEFAULT_MESSAGE_SORT : sort, sendEvent, receiveEvent));
+    }
+
+    /**
+     * Reads reference serialized as element, references to other resources
+     * are not supported.
+     */
+    private String readReferenceElement(XMLStreamReader reader) throws XMLStreamException, XmiReadException {
+        String id = getXmiAttribute(reader, "idref");
+        if (id == null) {
+            throw new XmiReadException("Unsupported reference " + reader.getLocalName() + " to " + reader.getAttributeValue(null, "href"));
+        }
+        skipElement(reader);
+        return id;
+    }
+
+    private String getQualifiedName(String namespaceName, String name) {
+        if (namespaceName == null || name == null) {
+            return null;
+        }
+        return namespaceName + "::" + name;
+    }
+
+    private String getFirstReference(String references) {
+        if (references == null) {
+            return null;
+        }
+        String trimmed = references.trim();
+        int end = trimmed.indexOf(' ');
+        return end < 0 ? trimmed : trimmed.substring(0, end);
+    }
+
+    private String getType(XMLStreamReader reader) {
+        String type = getXmiAttribute(reader, "type");
+        if (type == null) {
+            return reader.getLocalName();
+        }
+        return type.substring(type.indexOf(':') + 1);
+    }
+
+    private String getXmiAttribute(XMLStreamReader reader, String localName) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String namespace = reader.getAttributeNamespace(i);
+            if (localName.equals(reader.getAttributeLocalName(i)) && namespace != null && namespace.contains("XMI")) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves to the next child element of current element, returns false
+     * when the end of current element is reached.
+     */
+    private boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    static class XmiInteraction {
+
+        final String id;
+        final String name;
+        final String qualifiedName;
+        final Map<String, String> lifelineNames = new HashMap<>();
+        final Map<String, XmiOccurrence> occurrences = new HashMap<>();
+        final List<XmiMessage> messages = new ArrayList<>();
+        final List<Object> fragments = new ArrayList<>();
+
+        private XmiInteraction(String id, String name, String qualifiedName) {
+            this.id = id;
+            this.name = name;
+            this.qualifiedName = qualifiedName;
+        }
+    }
+
+    static class XmiOccurrence {
+
+        final String id;
+        final String name;
+        final String coveredId;
+
+        private XmiOccurrence(String id, String name, String coveredId) {
+            this.id = id;
+            this.name = name;
+            this.coveredId = coveredId;
+        }
+    }
+
+    static class XmiMessage {
+
+        final String name;
+        final String sort;
+        final String sendEventId;
+        final String receiveEventId;
+
+        private XmiMessage(String name, String sort, String sendEventId, String receiveEventId) {
+            this.name = name;
+            this.sort = sort;
+            this.sendEventId = sendEventId;
+            this.receiveEventId = receiveEventId;
+        }
+    }
+
+    static class XmiCombinedFragment {
+
+        final String operator;
+        final List<Object> fragments = new ArrayList<>();
+        String guard = "";
+
+        private XmiCombinedFragment(String operator) {
+            this.operator = operator;
+        }
+    }
+}
@@ -16,34 +16,40 @@
 package com.mlyncar.dp.analyzer.uml.impl;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
 
 import org.eclipse.emf.common.util.EList;
-import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
-import org.eclipse.emf.ecore.resource.ResourceSet;
-import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 import org.eclipse.uml2.uml.CombinedFragment;
 import org.eclipse.uml2.uml.Interaction;
 import org.eclipse.uml2.uml.InteractionFragment;
 import org.eclipse.uml2.uml.InteractionOperand;
 import org.eclipse.uml2.uml.LiteralString;
+import org.eclipse.uml2.uml.MessageEnd;
 import org.eclipse.uml2.uml.MessageOccurrenceSpecification;
 import org.eclipse.uml2.uml.MessageSort;
-import org.eclipse.uml2.uml.UMLPackage;
-import org.eclipse.uml2.uml.resource.UMLResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.mlyncar.dp.analyzer.config.AnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.config.ProjectContext;
 import com.mlyncar.dp.analyzer.entity.CombFragment;
 import com.mlyncar.dp.analyzer.entity.CombFragmentType;
 import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageLoader;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
 import com.mlyncar.dp.analyzer.entity.MessageType;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+import com.mlyncar.dp.analyzer.entity.impl.CombFragmentContext;
 import com.mlyncar.dp.analyzer.entity.impl.CombFragmentImpl;
-import com.mlyncar.dp.analyzer.entity.impl.LifelineImpl;
 import com.mlyncar.dp.analyzer.entity.impl.MessageImpl;
 import com.mlyncar.dp.analyzer.entity.impl.SeqDiagramImpl;
 import com.mlyncar.dp.analyzer.exception.AnalyzerException;
@@ -60,126 +66,285 @@ import com.mlyncar.dp.analyzer.uml.exception.InteractionNotFoundException;
 public class XmiUmlAnalyzer implements UmlAnalyzer {
 
     private Resource resource;
-    private Resource notationResource;
+    private UmlModelCache modelCache;
     private final Logger logger = LoggerFactory.getLogger(XmiUmlAnalyzer.class);
+    private final AnalyzerConfiguration configuration;
+    private final ProjectContext projectContext;
+
+    public XmiUmlAnalyzer() {
+        this(new AnalyzerConfiguration());
+    }
+
+    public XmiUmlAnalyzer(AnalyzerConfiguration configuration) {
+        this(configuration, null);
+    }
+
+    /**
+     * @param projectContext analyzed project, model of project selected in
+     * the workbench is analyzed when null
+     */
+    public XmiUmlAnalyzer(AnalyzerConfiguration configuration, ProjectContext projectContext) {
+        this.configuration = configuration;
+        this.projectContext = projectContext;
+    }
 
     @Override
     public List<SeqDiagram> analyzeUmlModel() throws AnalyzerException {
-        return analyzeUmlModel(EclipseProjectNavigatorHelper.getCurrentProjectModel());
+        return analyzeUmlModel(getModelPath());
+    }
+
+    @Override
+    public List<SeqDiagram> analyzeUmlModel(MessageSinkFactory sinkFactory) throws AnalyzerException {
+        return analyzeUmlModel(getModelPath(), sinkFactory);
     }
 
     @Override
     public SeqDiagram analyzeSequenceDiagram(String pathToDiagram, String diagramName) throws InteractionNotFoundException, AnalyzerException {
-        this.resource = loadUmlModelResource(pathToDiagram);
-        this.notationResource = loadNotationModelResource(pathToDiagram);
+        loadModel(pathToDiagram);
         Interaction interaction = findInteraction(diagramName);
-        SeqDiagram diagram = analyzeInteraction(interaction);
-        TestHelper.validateDiagram(diagram);
-        return diagram;
+        return analyzeInteraction(interaction, null);
     }
 
     @Override
     public List<SeqDiagram> analyzeUmlModel(String pathToModel) throws AnalyzerException {
-        this.resource = loadUmlModelResource(pathToModel);
-        this.notationResource = loadNotationModelResource(pathToModel);
-        List<SeqDiagram> diagrams = new ArrayList<>();
-        Iterator<EObject> it = resource.getAllContents();
-        while (it.hasNext()) {
-            EObject object = it.next();
-            if (object instanceof Interaction) {
-                Interaction interaction = (Interaction) object;
-                SeqDiagram newDiagram = analyzeInteraction(interaction);
-                TestHelper.validateDiagram(newDiagram);
-                diagrams.add(newDiagram);
+        return analyzeUmlModel(pathToModel, null);
+    }
+
+    @Override
+    public List<SeqDiagram> analyzeUmlModel(String pathToModel, MessageSinkFactory sinkFactory) throws AnalyzerException {
+        loadModel(pathToModel);
+        List<Interaction> interactions = new ArrayList<>();
+        for (Interaction interaction : modelCache.getInteractions(resource)) {
+            if (configuration.isUmlDiagramAccepted(interaction.getQualifiedName())) {
+                interactions.add(interaction);
+            } else {
+                logger.debug("Interaction {} is filtered out", interaction.getQualifiedName());
             }
         }
+        if (!configuration.isUmlLazy() && configuration.getParallelism() > 1 && interactions.size() > 1) {
+            return analyzeInteractionsInParallel(interactions, sinkFactory);
+        }
+        List<SeqDiagram> diagrams = new ArrayList<>();
+        for (Interaction interaction : interactions) {
+            diagrams.add(analyzeInteraction(interaction, sinkFactory));
+        }
         return diagrams;
     }
 
+    /**
+     * Reads messages of the interactions sequentially, because derived
+     * features of UML model and its cache adapter are not thread safe, and
+     * passes them to their diagrams and message sinks concurrently.
+     */
+    private List<SeqDiagram> analyzeInteractionsInParallel(List<Interaction> interactions, MessageSinkFactory sinkFactory) throws AnalyzerException {
+        final List<SeqDiagram> diagrams = new ArrayList<>();
+        final List<List<Message>> diagramMessages = new ArrayList<>();
+        for (Interaction interaction : interactions) {
+            SeqDiagram diagram = createDiagram(interaction);
+            if (sinkFactory != null) {
+                diagram.setMessageSink(sinkFactory.createMessageSink(diagram), configuration.isStreamedMessagesRetained());
+            }
+            diagrams.add(diagram);
+            diagramMessages.add(readMessages(interaction, diagram));
+        }
+        int parallelism = Math.min(configuration.getParallelism(), interactions.size());
+        logger.debug("Adding messages of {} interactions using {} threads", interactions.size(), parallelism);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<SeqDiagram>> tasks = new ArrayList<>();
+            for (int i = 0; i < diagrams.size(); i++) {
+                final int index = i;
+                tasks.add(pool.submit(new Callable<SeqDiagram>() {
+                    @Override
+                    public SeqDiagram call() {
+                        addMessages(diagrams.get(index), diagramMessages.get(index));
+                        return diagrams.get(index);
+                    }
+                }));
+            }
+            for (ForkJoinTask<SeqDiagram> task : tasks) {
+                task.get();
+            }
+            return diagrams;
+        } catch (ExecutionException ex) {
+            throw new AnalyzerException("Failed to analyze interaction of UML model", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new AnalyzerException("Analysis of UML model was interrupted", ex);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
     @Override
     public SeqDiagram analyzeSequenceDiagram(String diagramName) throws AnalyzerException {
-        this.resource = loadUmlModelResource(EclipseProjectNavigatorHelper.getCurrentProjectModel());
-        this.notationResource = loadNotationModelResource(EclipseProjectNavigatorHelper.getCurrentProjectModel());
+        loadModel(getModelPath());
         try {
             Interaction interaction = findInteraction(diagramName);
-            SeqDiagram diagram = analyzeInteraction(interaction);
-            TestHelper.validateDiagram(diagram);
-            return diagram;
+            return analyzeInteraction(interaction, null);
         } catch(InteractionNotFoundException ex) {
         	throw new AnalyzerException("Unable to analyze sequence diagram: ", ex);
         }
     }
 
+    private String getModelPath() {
+        return projectContext == null ? EclipseProjectNavigatorHelper.getCurrentProjectModel() : projectContext.getModelPath();
+    }
+
     private Interaction findInteraction(String interactionName) throws InteractionNotFoundException {
-        Iterator<EObject> it = resource.getAllContents();
-        while (it.hasNext()) {
-            EObject object = it.next();
-            if (object instanceof Interaction) {
-                Interaction interaction = (Interaction) object;
-                if (interaction.getName().equals(interactionName)) {
-                    return interaction;
+        Interaction interaction = modelCache.getInteractionIndex(resource).get(interactionName);
+        if (interaction != null) {
+            return interaction;
+        }
+        throw new InteractionNotFoundException("Interaction with name " + interactionName + " not found.");
+    }
+
+    /**
+     * Creates diagram of the interaction, in lazy mode messages are analyzed
+     * on the first access to them and they are not passed to message sink.
+     * Lazy diagram reads the interaction of the currently loaded model, so
+     * messages are not read from a stale model after the model is reloaded.
+     */
+    private SeqDiagram analyzeInteraction(final Interaction interaction, MessageSinkFactory sinkFactory) throws AnalyzerException {
+        SeqDiagram diagram = createDiagram(interaction);
+        if (configuration.isUmlLazy()) {
+            final UmlModelCache cache = modelCache;
+            final Resource analyzedResource = resource;
+            final String qualifiedName = interaction.getQualifiedName();
+            diagram.setMessageLoader(new MessageLoader() {
+                @Override
+                public void loadMessages(SeqDiagram lazyDiagram) throws AnalyzerException {
+                    Resource currentResource = cache.getModelResource();
+                    Interaction currentInteraction = interaction;
+                    if (currentResource != analyzedResource) {
+                        currentInteraction = findReloadedInteraction(cache, currentResource, qualifiedName);
+                        bindInteraction(lazyDiagram, cache, currentInteraction, currentResource);
+                    }
+                    addMessages(lazyDiagram, readMessages(currentInteraction, lazyDiagram));
                 }
+            });
+        } else {
+            if (sinkFactory != null) {
+                diagram.setMessageSink(sinkFactory.createMessageSink(diagram), configuration.isStreamedMessagesRetained());
             }
+            addMessages(diagram, readMessages(interaction, diagram));
         }
-        throw new InteractionNotFoundException("Interaction with name " + interactionName + " not found.");
+        return diagram;
     }
 
-    private SeqDiagram analyzeInteraction(Interaction interaction) throws AnalyzerException {
+    private SeqDiagram createDiagram(Interaction interaction) {
         SeqDiagram diagram = new SeqDiagramImpl();
-        diagram.setInteraction(interaction);
-        diagram.setInteractionResourceHolder(resource);
-        diagram.setNotationResource(notationResource);
-        analyzeFragmentSet(interaction.getFragments(), diagram, new ArrayList<>());
+        diagram.setName(interaction.getName());
+        diagram.setId(interaction.getQualifiedName());
+        bindInteraction(diagram, modelCache, interaction, resource);
         return diagram;
     }
 
-    private void analyzeFragmentSet(EList<InteractionFragment> eList, SeqDiagram diagram, List<CombFragment> fragments) throws AnalyzerException {
-        Integer counter = 0;
+    /**
+     * Sets interaction of the diagram together with the model resource and
+     * notation of the model the interaction is loaded in.
+     */
+    private void bindInteraction(SeqDiagram diagram, final UmlModelCache cache, Interaction interaction, final Resource modelResource) {
+        diagram.setInteraction(interaction);
+        diagram.setInteractionResourceHolder(modelResource);
+        diagram.setNotationResource(null);
+        diagram.setNotationResourceProvider(new Supplier<Object>() {
+            @Override
+            public Object get() {
+                return cache.getNotationResource(modelResource);
+            }
+        });
+    }
+
+    /**
+     * Returns interaction with given qualified name from the reloaded model.
+     */
+    private Interaction findReloadedInteraction(UmlModelCache cache, Resource currentResource, String qualifiedName) throws AnalyzerException {
+        logger.debug("UML model was reloaded, looking up interaction {} in the reloaded model", qualifiedName);
+        for (Interaction currentInteraction : cache.getInteractions(currentResource)) {
+            if (qualifiedName != null && qualifiedName.equals(currentInteraction.getQualifiedName())) {
+                return currentInteraction;
+            }
+        }
+        throw new AnalyzerException("Interaction " + qualifiedName + " is not part of the reloaded UML model");
+    }
+
+    /**
+     * Reads messages of the interaction in the order of their occurrences.
+     * Lifelines of the messages are taken from the diagram, but the messages
+     * are not added to it.
+     */
+    private List<Message> readMessages(Interaction interaction, SeqDiagram diagram) throws AnalyzerException {
+        Map<MessageEnd, org.eclipse.uml2.uml.Message> messagesBySendEvent = new IdentityHashMap<>();
+        for (org.eclipse.uml2.uml.Message umlMessage : interaction.getMessages()) {
+            if (umlMessage.getSendEvent() != null) {
+                messagesBySendEvent.put(umlMessage.getSendEvent(), umlMessage);
+            }
+        }
+        List<Message> messages = new ArrayList<>(messagesBySendEvent.size());
+        analyzeFragmentSet(interaction.getFragments(), messagesBySendEvent, diagram, messages, CombFragmentContext.EMPTY);
+        return messages;
+    }
+
+    private void addMessages(SeqDiagram diagram, List<Message> messages) {
+        diagram.setExpectedMessageCount(messages.size());
+        for (Message message : messages) {
+            diagram.addMessage(message);
+        }
+        if (configuration.isValidationEnabled()) {
+            TestHelper.validateDiagram(diagram);
+        }
+    }
+
+    /**
+     * Messages are created for occurrences which are send events of
+     * messages of the interaction.
+     */
+    private void analyzeFragmentSet(EList<InteractionFragment> eList, Map<MessageEnd, org.eclipse.uml2.uml.Message> messagesBySendEvent,
+            SeqDiagram diagram, List<Message> messages, CombFragmentContext fragments) throws AnalyzerException {
+        int counter = 0;
         for (EObject object : eList) {
             if (object instanceof MessageOccurrenceSpecification) {
                 MessageOccurrenceSpecification occurrence = (MessageOccurrenceSpecification) object;
-                if (occurrence.getName().contains("Send") || occurrence.getName().contains("Start")) {
-                    if (occurrence.getMessage() == null) {
-                        continue; //in case message occurrence does not contain message == message was removed 
-                        //should be handled differently, TODO - later, or whatever
-                    }
-                    logger.debug("Analyzing message of occurrence {} and message {}", occurrence.getName(), occurrence.getMessage().getName());
-                    MessageOccurrenceSpecification receiveOccurence = (MessageOccurrenceSpecification) occurrence.getMessage().getReceiveEvent();
-                    if (occurrence.getMessage().getMessageSort().equals(MessageSort.SYNCH_CALL_LITERAL)) {
+                org.eclipse.uml2.uml.Message umlMessage = messagesBySendEvent.get(occurrence);
+                if (umlMessage != null) {
+                    logger.debug("Analyzing message of occurrence {} and message {}", occurrence.getName(), umlMessage.getName());
+                    MessageOccurrenceSpecification receiveOccurence = (MessageOccurrenceSpecification) umlMessage.getReceiveEvent();
+                    if (umlMessage.getMessageSort().equals(MessageSort.SYNCH_CALL_LITERAL)) {
 
                         MessageType type = MessageType.SYNCH;
-                        if (receiveOccurence.getCovered().getName().equals(occurrence.getCovered().getName())) {
+                        if (receiveOccurence.getCovered() == occurrence.getCovered()) {
                             type = MessageType.SELF;
                         }
-                        Message message = new MessageImpl(counter++, type, occurrence.getMessage().getName(),
-                                new LifelineImpl(receiveOccurence.getCovered().getName()),
-                                new LifelineImpl(occurrence.getCovered().getName()), fragments);
+                        Message message = new MessageImpl(counter++, type, umlMessage.getName(),
+                                diagram.getLifeline(receiveOccurence.getCovered().getName()),
+                                diagram.getLifeline(occurrence.getCovered().getName()), fragments);
                         logger.debug("Creating synch/self message {} from lifeline {} to lifeline {}", message.getName(), message.getSourceLifeline().getName(), message.getTargetLifeline().getName());
                         logger.debug("Number of combined fragments {}", message.getCombFragments().size());
-                        diagram.addMessage(message);
-                    } else if (occurrence.getMessage().getMessageSort().equals(MessageSort.REPLY_LITERAL)) {
-                        Message message = new MessageImpl(counter++, MessageType.RETURN, occurrence.getMessage().getName(),
-                                new LifelineImpl(receiveOccurence.getCovered().getName()),
-                                new LifelineImpl(occurrence.getCovered().getName()), fragments);
+                        messages.add(message);
+                    } else if (umlMessage.getMessageSort().equals(MessageSort.REPLY_LITERAL)) {
+                        Message message = new MessageImpl(counter++, MessageType.RETURN, umlMessage.getName(),
+                                diagram.getLifeline(receiveOccurence.getCovered().getName()),
+                                diagram.getLifeline(occurrence.getCovered().getName()), fragments);
                         logger.debug("Creating ret message {} from lifeline {} to lifeline {}", message.getName(), message.getSourceLifeline().getName(), message.getTargetLifeline().getName());
-                        diagram.addMessage(message);
+                        messages.add(message);
                     }
                 }
             } else if (object instanceof CombinedFragment) {
                 CombinedFragment umlCombFragment = (CombinedFragment) object;
-                umlCombFragment.getInteractionOperator().getName();
+                if (umlCombFragment.getOperands().isEmpty()) {
+                    continue;
+                }
                 InteractionOperand operand = umlCombFragment.getOperands().get(0);
                 String guardValue = "";
-                if (operand.getGuard().getSpecification() instanceof LiteralString) {
+                if (operand.getGuard() != null && operand.getGuard().getSpecification() instanceof LiteralString) {
                     guardValue = ((LiteralString) operand.getGuard().getSpecification()).getValue();
                 }
                 logger.debug("Operand guard: {}", guardValue);
                 try {
                     CombFragment fragment = new CombFragmentImpl(guardValue, CombFragmentType.fromCode(umlCombFragment.getInteractionOperator().getName()));
                 	logger.debug("Next messages are located withing combined fragment {}", fragment.getCombFragmentType());
-                    List<CombFragment> newFragmentList = new ArrayList<CombFragment>(fragments);
-                    newFragmentList.add(0,fragment);
-                    analyzeFragmentSet(operand.getFragments(), diagram, newFragmentList);
+                    analyzeFragmentSet(operand.getFragments(), messagesBySendEvent, diagram, messages, fragments.prepend(fragment));
                 	logger.debug("Messages with combined fragment {} processed. " + fragment.getCombFragmentType());
                 } catch (CombFragmentException e) {
                     throw new AnalyzerException("Unable to process seq diagram analysis, combined fragment cannot be created.", e);
@@ -188,22 +353,8 @@ public class XmiUmlAnalyzer implements UmlAnalyzer {
         }
     }
 
-    private Resource loadUmlModelResource(String pathToModel) {
-        ResourceSet set = new ResourceSetImpl();
-        set.getPackageRegistry().put(UMLPackage.eNS_URI, UMLPackage.eINSTANCE);
-        set.getResourceFactoryRegistry().getExtensionToFactoryMap()
-                .put(UMLResource.FILE_EXTENSION, UMLResource.Factory.INSTANCE);
-        Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap()
-                .put(UMLResource.FILE_EXTENSION, UMLResource.Factory.INSTANCE);
-
-        Resource resource = set.getResource(URI.createFileURI(pathToModel), true);
-        return resource;
-    }
-
-    private Resource loadNotationModelResource(String pathToModel) {
-        String notationModel = pathToModel.substring(0, pathToModel.lastIndexOf('.')) + ".notation";
-        ResourceSet set = new ResourceSetImpl();
-        Resource resource = set.getResource(URI.createFileURI(notationModel), true);
-        return resource;
+    private void loadModel(String pathToModel) {
+        this.modelCache = UmlModelCache.getInstance(pathToModel);
+        this.resource = modelCache.getModelResource();
     }
 }
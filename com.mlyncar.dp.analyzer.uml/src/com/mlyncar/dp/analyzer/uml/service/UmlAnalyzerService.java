@@ -2,9 +2,13 @@ package com.mlyncar.dp.analyzer.uml.service;
 
 import java.util.List;
 
+import com.mlyncar.dp.analyzer.config.AnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.config.ProjectContext;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
 import com.mlyncar.dp.analyzer.exception.AnalyzerException;
 import com.mlyncar.dp.analyzer.uml.UmlAnalyzer;
+import com.mlyncar.dp.analyzer.uml.impl.StaxUmlAnalyzer;
 import com.mlyncar.dp.analyzer.uml.impl.XmiUmlAnalyzer;
 
 public class UmlAnalyzerService {
@@ -12,12 +16,28 @@ public class UmlAnalyzerService {
 	private UmlAnalyzer analyzer;
 	
 	public UmlAnalyzerService() {
-		this.analyzer = new XmiUmlAnalyzer();
+		this(new AnalyzerConfiguration());
+	}
+
+	public UmlAnalyzerService(AnalyzerConfiguration configuration) {
+		this(configuration, null);
+	}
+
+	public UmlAnalyzerService(AnalyzerConfiguration configuration, ProjectContext projectContext) {
+		if (configuration.isUmlStreaming()) {
+			this.analyzer = new StaxUmlAnalyzer(configuration, projectContext);
+		} else {
+			this.analyzer = new XmiUmlAnalyzer(configuration, projectContext);
+		}
 	}
 	
 	public List<SeqDiagram> getAllModelDiagrams() throws AnalyzerException {
 		return analyzer.analyzeUmlModel();
 	}
+
+	public List<SeqDiagram> getAllModelDiagrams(MessageSinkFactory sinkFactory) throws AnalyzerException {
+		return analyzer.analyzeUmlModel(sinkFactory);
+	}
 	
 	public SeqDiagram getSeqDiagram(String identifier) throws AnalyzerException {
 		return this.analyzer.analyzeSequenceDiagram(identifier);
@@ -0,0 +1,198 @@
+package com.mlyncar.dp.analyzer.config;
+
+import java.util.Properties;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Settings of diagram extraction read from synchronization properties.
+ * Missing or invalid values fall back to defaults which do not limit the
+ * extraction.
+ */
+public class AnalyzerConfiguration {
+
+    public static final String MAX_CALL_DEPTH_PROPERTY = "analyzer.depth.max";
+    public static final String MESSAGE_BUDGET_PROPERTY = "analyzer.message.max";
+    public static final String INCREMENTAL_PROPERTY = "analyzer.incremental";
+    public static final String ENTRY_POINT_PATTERN_PROPERTY = "analyzer.entry.pattern";
+    public static final String ENTRY_POINT_INTERACTIONS_PROPERTY = "analyzer.entry.interactions";
+    public static final String PARALLELISM_PROPERTY = "analyzer.parallelism";
+    public static final String UML_STREAMING_PROPERTY = "analyzer.uml.streaming";
+    public static final String UML_LAZY_PROPERTY = "analyzer.uml.lazy";
+    public static final String UML_DIAGRAM_FILTER_PROPERTY = "analyzer.uml.filter";
+    public static final String VALIDATION_PROPERTY = "analyzer.validation";
+    public static final String STREAMING_PROPERTY = "analyzer.streaming";
+    public static final String STREAMING_RETAIN_PROPERTY = "analyzer.streaming.retain";
+    public static final String COMPACT_GRAPH_PROPERTY = "analyzer.graph.compact";
+    private static final String DEFAULT_ENTRY_POINT_PATTERN = "main";
+
+    private final Logger logger = LoggerFactory.getLogger(AnalyzerConfiguration.class);
+    private final int maxCallDepth;
+    private final int messageBudget;
+    private final boolean incremental;
+    private final Pattern entryPointPattern;
+    private final boolean entryPointsFromInteractions;
+    private final int parallelism;
+    private final boolean umlStreaming;
+    private final boolean umlLazy;
+    private final Pattern umlDiagramFilter;
+    private final boolean validationEnabled;
+    private final boolean streaming;
+    private final boolean streamedMessagesRetained;
+    private final boolean compactGraph;
+
+    public AnalyzerConfiguration() {
+        this(new Properties());
+    }
+
+    public AnalyzerConfiguration(Properties properties) {
+        this.maxCallDepth = getIntProperty(properties, MAX_CALL_DEPTH_PROPERTY, Integer.MAX_VALUE);
+        this.messageBudget = getIntProperty(properties, MESSAGE_BUDGET_PROPERTY, Integer.MAX_VALUE);
+        this.incremental = Boolean.parseBoolean(properties.getProperty(INCREMENTAL_PROPERTY, "true").trim());
+        this.entryPointPattern = getPatternProperty(properties, ENTRY_POINT_PATTERN_PROPERTY, DEFAULT_ENTRY_POINT_PATTERN);
+        this.entryPointsFromInteractions = Boolean.parseBoolean(properties.getProperty(ENTRY_POINT_INTERACTIONS_PROPERTY, "false").trim());
+        this.parallelism = getIntProperty(properties, PARALLELISM_PROPERTY, 1);
+        this.umlStreaming = Boolean.parseBoolean(properties.getProperty(UML_STREAMING_PROPERTY, "false").trim());
+        this.umlLazy = Boolean.parseBoolean(properties.getProperty(UML_LAZY_PROPERTY, "false").trim());
+        this.umlDiagramFilter = getPatternProperty(properties, UML_DIAGRAM_FILTER_PROPERTY, null);
+        this.validationEnabled = Boolean.parseBoolean(properties.getProperty(VALIDATION_PROPERTY, "false").trim());
+        this.streaming = Boolean.parseBoolean(properties.getProperty(STREAMING_PROPERTY, "false").trim());
+        this.streamedMessagesRetained = Boolean.parseBoolean(properties.getProperty(STREAMING_RETAIN_PROPERTY, "false").trim());
+        this.compactGraph = Boolean.parseBoolean(properties.getProperty(COMPACT_GRAPH_PROPERTY, "false").trim());
+    }
+
+    /**
+     * Maximal depth of nested calls extracted from entry method, calls on
+     * the last level are extracted without their bodies.
+     */
+    public int getMaxCallDepth() {
+        return maxCallDepth;
+    }
+
+    /**
+     * Maximal number of messages extracted in one analysis of source code,
+     * shared by diagrams of all its entry methods.
+     */
+    public int getMessageBudget() {
+        return messageBudget;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Pattern of names of methods from which sequence diagrams are extracted.
+     */
+    public Pattern getEntryPointPattern() {
+        return entryPointPattern;
+    }
+
+    /**
+     * Whether methods named after interactions of the UML model are used as
+     * additional entry points.
+     */
+    public boolean isEntryPointsFromInteractions() {
+        return entryPointsFromInteractions;
+    }
+
+    /**
+     * Number of threads extracting diagrams of entry points or analyzing
+     * interactions of UML model concurrently, diagrams are extracted
+     * sequentially if set to 1.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Whether sequence diagrams are read from XMI stream of the UML model
+     * instead of the EMF model.
+     */
+    public boolean isUmlStreaming() {
+        return umlStreaming;
+    }
+
+    /**
+     * Whether messages of UML model diagrams are analyzed on their first
+     * access instead of during the analysis of the model.
+     */
+    public boolean isUmlLazy() {
+        return umlLazy;
+    }
+
+    /**
+     * Returns whether diagram of interaction with given qualified name, such
+     * as Model::package::interaction, is analyzed from the UML model.
+     */
+    public boolean isUmlDiagramAccepted(String qualifiedName) {
+        if (umlDiagramFilter == null) {
+            return true;
+        }
+        return qualifiedName != null && umlDiagramFilter.matcher(qualifiedName).matches();
+    }
+
+    /**
+     * Whether analyzed diagrams and their graphs are validated and logged.
+     */
+    public boolean isValidationEnabled() {
+        return validationEnabled;
+    }
+
+    /**
+     * Whether analyzed messages are passed directly to graph transformation
+     * instead of being transformed after the whole diagram is analyzed.
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Whether streamed messages are also kept in their diagrams, they are
+     * always kept when validation is enabled.
+     */
+    public boolean isStreamedMessagesRetained() {
+        return streamedMessagesRetained || validationEnabled;
+    }
+
+    /**
+     * Whether graphs of diagrams store their nodes in arrays instead of
+     * node objects.
+     */
+    public boolean isCompactGraph() {
+        return compactGraph;
+    }
+
+    private Pattern getPatternProperty(Properties properties, String key, String defaultValue) {
+        String value = properties.getProperty(key, defaultValue);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Pattern.compile(value.trim());
+        } catch (PatternSyntaxException ex) {
+            logger.warn("Invalid value {} of property {}, using default", value, key);
+            return defaultValue == null ? null : Pattern.compile(defaultValue);
+        }
+    }
+
+    private int getIntProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int result = Integer.parseInt(value.trim());
+            if (result > 0) {
+                return result;
+            }
+        } catch (NumberFormatException ex) {
+            logger.debug("Property {} is not a number: {}", key, value);
+        }
+        logger.warn("Invalid value {} of property {}, using default", value, key);
+        return defaultValue;
+    }
+}
@@ -0,0 +1,99 @@
+package com.mlyncar.dp.analyzer.config;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+
+import com.mlyncar.dp.analyzer.exception.AnalyzerException;
+import com.mlyncar.dp.analyzer.helper.EclipseProjectNavigatorHelper;
+
+/**
+ * Project and UML model being synchronized, resolved once at the start of a
+ * synchronization. Contexts of workspace projects do not need a workbench,
+ * so the analysis may run in a headless application.
+ */
+public class ProjectContext {
+
+    private final IJavaProject javaProject;
+    private final String modelPath;
+
+    public ProjectContext(IJavaProject javaProject, String modelPath) {
+        this.javaProject = javaProject;
+        this.modelPath = modelPath;
+    }
+
+    /**
+     * Creates context of project selected in the workbench.
+     */
+    public static ProjectContext fromSelection() throws AnalyzerException {
+        IProject project = EclipseProjectNavigatorHelper.getSelectedProject();
+        if (project == null) {
+            throw new AnalyzerException("No project is selected in the workbench.");
+        }
+        return forProject(project);
+    }
+
+    /**
+     * Creates context of open workspace project, the first UML model in the
+     * root of the project is synchronized.
+     */
+    public static ProjectContext forProject(IProject project) throws AnalyzerException {
+        return new ProjectContext(JavaCore.create(project), EclipseProjectNavigatorHelper.getProjectModel(project));
+    }
+
+    /**
+     * Creates context of workspace project with given name, closed project
+     * is opened.
+     */
+    public static ProjectContext forProject(String projectName) throws AnalyzerException {
+        IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(projectName);
+        if (!project.exists()) {
+            throw new AnalyzerException("Project " + projectName + " does not exist in the workspace.");
+        }
+        return forProject(openProject(project));
+    }
+
+    /**
+     * Creates context of project stored in given directory, project which is
+     * not part of the workspace yet is imported to the workspace.
+     */
+    public static ProjectContext forProjectLocation(String projectLocation) throws AnalyzerException {
+        IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        try {
+            IProjectDescription description = workspace.loadProjectDescription(new Path(projectLocation).append(".project"));
+            IProject project = workspace.getRoot().getProject(description.getName());
+            if (!project.exists()) {
+                project.create(description, null);
+            }
+            return forProject(openProject(project));
+        } catch (CoreException ex) {
+            throw new AnalyzerException("Unable to import project from " + projectLocation, ex);
+        }
+    }
+
+    public IJavaProject getJavaProject() {
+        return javaProject;
+    }
+
+    public String getModelPath() {
+        return modelPath;
+    }
+
+    private static IProject openProject(IProject project) throws AnalyzerException {
+        try {
+            if (!project.isOpen()) {
+                project.open(null);
+            }
+            project.refreshLocal(IResource.DEPTH_INFINITE, null);
+            return project;
+        } catch (CoreException ex) {
+            throw new AnalyzerException("Unable to open project " + project.getName(), ex);
+        }
+    }
+}
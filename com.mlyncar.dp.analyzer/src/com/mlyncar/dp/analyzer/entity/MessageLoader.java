@@ -0,0 +1,12 @@
+package com.mlyncar.dp.analyzer.entity;
+
+import com.mlyncar.dp.analyzer.exception.AnalyzerException;
+
+/**
+ * Adds messages to a diagram whose analysis was postponed until its messages
+ * are requested.
+ */
+public interface MessageLoader {
+
+    public void loadMessages(SeqDiagram diagram) throws AnalyzerException;
+}
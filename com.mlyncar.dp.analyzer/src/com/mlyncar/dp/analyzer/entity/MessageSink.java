@@ -0,0 +1,10 @@
+package com.mlyncar.dp.analyzer.entity;
+
+/**
+ * Receives messages of a diagram in order as they are analyzed, so they can
+ * be processed without keeping them in the diagram.
+ */
+public interface MessageSink {
+
+    public void addMessage(Message message);
+}
@@ -0,0 +1,10 @@
+package com.mlyncar.dp.analyzer.entity;
+
+/**
+ * Creates sink for messages of a diagram, called by analyzers before the
+ * first message of the diagram is analyzed.
+ */
+public interface MessageSinkFactory {
+
+    public MessageSink createMessageSink(SeqDiagram diagram);
+}
@@ -16,6 +16,9 @@
 package com.mlyncar.dp.analyzer.entity;
 
 import java.util.List;
+import java.util.function.Supplier;
+
+import com.mlyncar.dp.analyzer.exception.AnalyzerException;
 
 /**
  *
@@ -35,15 +38,73 @@ public interface SeqDiagram {
 
     public void addMessage(Message message);
 
+    /**
+     * Returns number of messages added to the diagram, including messages
+     * which were passed to message sink without being kept.
+     */
+    public int getMessageCount();
+
+    /**
+     * Sets sink which receives every message added to the diagram.
+     *
+     * @param retainMessages whether messages are also kept in the diagram
+     */
+    public void setMessageSink(MessageSink sink, boolean retainMessages);
+
+    /**
+     * Hints number of messages which will be added to the diagram, so they
+     * can be stored without repeated growth of the storage.
+     */
+    public void setExpectedMessageCount(int count);
+
+    /**
+     * Sets loader of messages, which is called once on first access to
+     * messages of the diagram.
+     */
+    public void setMessageLoader(MessageLoader loader);
+
+    /**
+     * Calls loader of messages unless the messages were already loaded.
+     * Failure of the loader is reported by the exception, while
+     * getMessages reports it as an unchecked exception.
+     */
+    public void loadMessages() throws AnalyzerException;
+
+    /**
+     * Returns lifeline of this diagram with given name and package, equal
+     * lifelines of one diagram are represented by the same instance.
+     */
+    public Lifeline getLifeline(String name, String packageName);
+
+    public Lifeline getLifeline(String name);
+
     public void setInteraction(Object interaction);
 
     public Object getInteraction();
 
+    /**
+     * Sets provider of interaction, which is called on first request of
+     * interaction.
+     */
+    public void setInteractionProvider(Supplier<Object> provider);
+
     public Object getResourceInteractionHolder();
 
     public void setInteractionResourceHolder(Object interactionResourceHolder);
 
+    /**
+     * Sets provider of resource holding the interaction, which is called on
+     * first request of the resource.
+     */
+    public void setInteractionResourceHolderProvider(Supplier<Object> provider);
+
     public Object getNotationResource();
 
     public void setNotationResource(Object object);
+
+    /**
+     * Sets provider of notation resource, which is called on first request
+     * of notation resource.
+     */
+    public void setNotationResourceProvider(Supplier<Object> provider);
 }
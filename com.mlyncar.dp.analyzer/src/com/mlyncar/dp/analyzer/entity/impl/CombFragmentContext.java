@@ -0,0 +1,135 @@
+package com.mlyncar.dp.analyzer.entity.impl;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+
+/**
+ * Immutable list of combined fragments enclosing a message. Every context
+ * refers to its parent context and adds one fragment either in front of or
+ * behind the fragments of the parent, so nested contexts share structure and
+ * messages can share one context instance. Size and hash code are computed
+ * when the context is created, elements are collected on first access.
+ */
+public final class CombFragmentContext extends AbstractList<CombFragment> {
+
+    public static final CombFragmentContext EMPTY = new CombFragmentContext();
+
+    private final CombFragmentContext parent;
+    private final CombFragment fragment;
+    private final boolean prepended;
+    private final int size;
+    private final int hash;
+    private final int sizePower;
+    private volatile CombFragment[] elements;
+
+    private CombFragmentContext() {
+        this.parent = null;
+        this.fragment = null;
+        this.prepended = false;
+        this.size = 0;
+        this.hash = 1;
+        this.sizePower = 1;
+        this.elements = new CombFragment[0];
+    }
+
+    private CombFragmentContext(CombFragmentContext parent, CombFragment fragment, boolean prepended) {
+        this.parent = parent;
+        this.fragment = fragment;
+        this.prepended = prepended;
+        this.size = parent.size + 1;
+        int fragmentHash = fragment == null ? 0 : fragment.hashCode();
+        if (prepended) {
+            this.hash = parent.sizePower * (31 + fragmentHash) + parent.hash - parent.sizePower;
+        } else {
+            this.hash = 31 * parent.hash + fragmentHash;
+        }
+        this.sizePower = 31 * parent.sizePower;
+    }
+
+    /**
+     * Returns context in the order of given fragments, lists which are
+     * already contexts are returned as they are.
+     */
+    public static CombFragmentContext of(List<CombFragment> fragments) {
+        if (fragments == null) {
+            return EMPTY;
+        }
+        if (fragments instanceof CombFragmentContext) {
+            return (CombFragmentContext) fragments;
+        }
+        return EMPTY.appendAll(fragments);
+    }
+
+    public CombFragmentContext append(CombFragment fragment) {
+        return new CombFragmentContext(this, fragment, false);
+    }
+
+    public CombFragmentContext appendAll(List<CombFragment> fragments) {
+        CombFragmentContext context = this;
+        for (CombFragment newFragment : fragments) {
+            context = context.append(newFragment);
+        }
+        return context;
+    }
+
+    public CombFragmentContext prepend(CombFragment fragment) {
+        return new CombFragmentContext(this, fragment, true);
+    }
+
+    @Override
+    public CombFragment get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return getElements()[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof CombFragmentContext) {
+            CombFragmentContext other = (CombFragmentContext) o;
+            if (other.size != size || other.hash != hash) {
+                return false;
+            }
+        }
+        return super.equals(o);
+    }
+
+    private CombFragment[] getElements() {
+        CombFragment[] result = elements;
+        if (result == null) {
+            result = new CombFragment[size];
+            fill(result, 0);
+            elements = result;
+        }
+        return result;
+    }
+
+    private void fill(CombFragment[] array, int offset) {
+        if (parent == null) {
+            return;
+        }
+        if (prepended) {
+            array[offset] = fragment;
+            parent.fill(array, offset + 1);
+        } else {
+            parent.fill(array, offset);
+            array[offset + parent.size] = fragment;
+        }
+    }
+}
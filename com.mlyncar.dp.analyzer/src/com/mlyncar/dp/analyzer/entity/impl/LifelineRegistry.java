@@ -0,0 +1,49 @@
+package com.mlyncar.dp.analyzer.entity.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.mlyncar.dp.analyzer.entity.Lifeline;
+
+/**
+ * Interns lifelines of a diagram by name and package, so messages referring
+ * to the same lifeline share one instance. Registry may be used from
+ * multiple threads.
+ */
+public class LifelineRegistry {
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Lifeline>> lifelines = new ConcurrentHashMap<>();
+
+    public Lifeline getLifeline(String name) {
+        return getLifeline(name, null);
+    }
+
+    public Lifeline getLifeline(String name, String packageName) {
+        String packageKey = packageName == null ? "" : packageName;
+        ConcurrentMap<String, Lifeline> packageLifelines = lifelines.get(packageKey);
+        if (packageLifelines == null) {
+            ConcurrentMap<String, Lifeline> newPackageLifelines = new ConcurrentHashMap<>();
+            packageLifelines = lifelines.putIfAbsent(packageKey, newPackageLifelines);
+            if (packageLifelines == null) {
+                packageLifelines = newPackageLifelines;
+            }
+        }
+        Lifeline lifeline = packageLifelines.get(name);
+        if (lifeline == null) {
+            Lifeline newLifeline = new LifelineImpl(name, packageName);
+            lifeline = packageLifelines.putIfAbsent(name, newLifeline);
+            if (lifeline == null) {
+                lifeline = newLifeline;
+            }
+        }
+        return lifeline;
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentMap<String, Lifeline> packageLifelines : lifelines.values()) {
+            size += packageLifelines.size();
+        }
+        return size;
+    }
+}
@@ -15,7 +15,6 @@
  */
 package com.mlyncar.dp.analyzer.entity.impl;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import com.mlyncar.dp.analyzer.entity.CombFragment;
@@ -33,20 +32,16 @@ public class MessageImpl implements Message {
     private MessageType type;
     private Lifeline targetLifeline;
     private Lifeline sourceLifeline;
-    private final Integer seqNumber;
+    private final int seqNumber;
     private final List<CombFragment> combFragments;
 
-    public MessageImpl(Integer seqNumber, MessageType type, String name, Lifeline targetLifeline, Lifeline sourceLifeline, List<CombFragment> combFragments) {
+    public MessageImpl(int seqNumber, MessageType type, String name, Lifeline targetLifeline, Lifeline sourceLifeline, List<CombFragment> combFragments) {
         this.type = type;
         this.name = name;
         this.targetLifeline = targetLifeline;
         this.sourceLifeline = sourceLifeline;
         this.seqNumber = seqNumber;
-        if (combFragments == null) {
-            this.combFragments = new ArrayList<CombFragment>();
-        } else {
-            this.combFragments = new ArrayList<CombFragment>(combFragments);
-        }
+        this.combFragments = CombFragmentContext.of(combFragments);
     }
 
     @Override
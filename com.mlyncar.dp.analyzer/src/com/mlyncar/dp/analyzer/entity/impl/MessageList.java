@@ -0,0 +1,104 @@
+package com.mlyncar.dp.analyzer.entity.impl;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import com.mlyncar.dp.analyzer.entity.Message;
+
+/**
+ * Messages of a diagram stored in chunks of fixed size, so adding messages
+ * to large diagrams never copies already stored messages. The first chunk
+ * starts small and grows up to the chunk size, so small diagrams do not
+ * allocate whole chunks.
+ */
+public class MessageList extends AbstractList<Message> implements RandomAccess {
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MIN_CAPACITY = 16;
+
+    private Message[][] chunks = new Message[1][];
+    private int size;
+
+    public MessageList() {
+        this.chunks[0] = new Message[MIN_CAPACITY];
+    }
+
+    /**
+     * Makes room for given number of messages, so they are stored without
+     * further allocation.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= 0) {
+            return;
+        }
+        int chunkCount = ((capacity - 1) >> CHUNK_SHIFT) + 1;
+        if (chunkCount > chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount);
+        }
+        if (chunks[0].length < CHUNK_SIZE) {
+            chunks[0] = Arrays.copyOf(chunks[0], chunkCount > 1 ? CHUNK_SIZE : Math.max(capacity, chunks[0].length));
+        }
+        for (int i = 1; i < chunkCount; i++) {
+            if (chunks[i] == null) {
+                chunks[i] = new Message[CHUNK_SIZE];
+            }
+        }
+    }
+
+    @Override
+    public boolean add(Message message) {
+        int chunkIndex = size >> CHUNK_SHIFT;
+        int offset = size & CHUNK_MASK;
+        if (chunkIndex == 0 && offset == chunks[0].length) {
+            chunks[0] = Arrays.copyOf(chunks[0], Math.min(chunks[0].length * 2, CHUNK_SIZE));
+        } else if (offset == 0 && chunkIndex > 0) {
+            if (chunkIndex == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunks.length * 2);
+            }
+            if (chunks[chunkIndex] == null) {
+                chunks[chunkIndex] = new Message[CHUNK_SIZE];
+            }
+        }
+        chunks[chunkIndex][offset] = message;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public Message get(int index) {
+        checkIndex(index);
+        return chunks[index >> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    @Override
+    public Message set(int index, Message message) {
+        checkIndex(index);
+        Message[] chunk = chunks[index >> CHUNK_SHIFT];
+        Message previous = chunk[index & CHUNK_MASK];
+        chunk[index & CHUNK_MASK] = message;
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        chunks = new Message[1][];
+        chunks[0] = new Message[MIN_CAPACITY];
+        size = 0;
+        modCount++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -15,11 +15,15 @@
  */
 package com.mlyncar.dp.analyzer.entity.impl;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
+import com.mlyncar.dp.analyzer.entity.Lifeline;
 import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageLoader;
+import com.mlyncar.dp.analyzer.entity.MessageSink;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+import com.mlyncar.dp.analyzer.exception.AnalyzerException;
 
 /**
  *
@@ -29,10 +33,19 @@ public class SeqDiagramImpl implements SeqDiagram {
 
     private String name;
     private String id;
-    private List<Message> messages = new ArrayList<>();
+    private final MessageList messages = new MessageList();
+    private final LifelineRegistry lifelines = new LifelineRegistry();
+    private volatile MessageLoader messageLoader;
+    private boolean loadingMessages;
+    private MessageSink messageSink;
+    private boolean retainMessages = true;
+    private int messageCount;
     private Object interaction;
+    private Supplier<Object> interactionProvider;
     private Object interactionResourceHolder;
+    private Supplier<Object> interactionResourceHolderProvider;
     private Object notationResource;
+    private Supplier<Object> notationResourceProvider;
 
     @Override
     public String getName() {
@@ -56,12 +69,86 @@ public class SeqDiagramImpl implements SeqDiagram {
 
     @Override
     public List<Message> getMessages() {
+        ensureMessagesLoaded();
         return this.messages;
     }
 
     @Override
     public void addMessage(Message message) {
-        this.messages.add(message);
+        ensureMessagesLoaded();
+        if (this.messageSink != null) {
+            this.messageSink.addMessage(message);
+        }
+        if (this.retainMessages) {
+            this.messages.add(message);
+        }
+        this.messageCount++;
+    }
+
+    @Override
+    public int getMessageCount() {
+        ensureMessagesLoaded();
+        return this.messageCount;
+    }
+
+    @Override
+    public void setMessageSink(MessageSink sink, boolean retainMessages) {
+        this.messageSink = sink;
+        this.retainMessages = retainMessages;
+    }
+
+    @Override
+    public void setExpectedMessageCount(int count) {
+        if (this.retainMessages) {
+            this.messages.ensureCapacity(count);
+        }
+    }
+
+    @Override
+    public void setMessageLoader(MessageLoader loader) {
+        this.messageLoader = loader;
+    }
+
+    @Override
+    public void loadMessages() throws AnalyzerException {
+        if (this.messageLoader == null) {
+            return;
+        }
+        synchronized (this) {
+            MessageLoader loader = this.messageLoader;
+            if (loader == null || this.loadingMessages) {
+                return;
+            }
+            this.loadingMessages = true;
+            try {
+                loader.loadMessages(this);
+                this.messageLoader = null;
+            } catch (AnalyzerException ex) {
+                this.messages.clear();
+                this.messageCount = 0;
+                throw ex;
+            } finally {
+                this.loadingMessages = false;
+            }
+        }
+    }
+
+    private void ensureMessagesLoaded() {
+        try {
+            loadMessages();
+        } catch (AnalyzerException ex) {
+            throw new IllegalStateException("Unable to load messages of diagram " + this.name, ex);
+        }
+    }
+
+    @Override
+    public Lifeline getLifeline(String name, String packageName) {
+        return this.lifelines.getLifeline(name, packageName);
+    }
+
+    @Override
+    public Lifeline getLifeline(String name) {
+        return this.lifelines.getLifeline(name);
     }
 
     @Override
@@ -71,11 +158,22 @@ public class SeqDiagramImpl implements SeqDiagram {
 
     @Override
     public Object getInteraction() {
+        if (this.interaction == null && this.interactionProvider != null) {
+            this.interaction = this.interactionProvider.get();
+        }
         return this.interaction;
     }
 
+    @Override
+    public void setInteractionProvider(Supplier<Object> provider) {
+        this.interactionProvider = provider;
+    }
+
     @Override
     public Object getResourceInteractionHolder() {
+        if (this.interactionResourceHolder == null && this.interactionResourceHolderProvider != null) {
+            this.interactionResourceHolder = this.interactionResourceHolderProvider.get();
+        }
         return this.interactionResourceHolder;
     }
 
@@ -84,8 +182,16 @@ public class SeqDiagramImpl implements SeqDiagram {
         this.interactionResourceHolder = interactionResourceHolder;
     }
 
+    @Override
+    public void setInteractionResourceHolderProvider(Supplier<Object> provider) {
+        this.interactionResourceHolderProvider = provider;
+    }
+
     @Override
     public Object getNotationResource() {
+        if (this.notationResource == null && this.notationResourceProvider != null) {
+            this.notationResource = this.notationResourceProvider.get();
+        }
         return this.notationResource;
     }
 
@@ -94,4 +200,9 @@ public class SeqDiagramImpl implements SeqDiagram {
         this.notationResource = notationResource;
     }
 
+    @Override
+    public void setNotationResourceProvider(Supplier<Object> provider) {
+        this.notationResourceProvider = provider;
+    }
+
 }
@@ -34,34 +34,45 @@ import com.mlyncar.dp.analyzer.exception.AnalyzerException;
 public class EclipseProjectNavigatorHelper {
 
     public static IJavaProject getCurrentProject() {
-        ISelectionService selectionService = PlatformUI.getWorkbench().getActiveWorkbenchWindow().getSelectionService();
-        ISelection selection = selectionService.getSelection();
-        if (selection instanceof IStructuredSelection) {
-            Object element = ((IStructuredSelection) selection)
-                    .getFirstElement();
-            IProject selectedProject = (IProject) element;
-            return JavaCore.create(selectedProject);
+        IProject selectedProject = getSelectedProject();
+        if (selectedProject == null) {
+            return null;
         }
-        return null;
+        return JavaCore.create(selectedProject);
     }
 
     public static String getCurrentProjectModel() throws AnalyzerException {
+        IProject selectedProject = getSelectedProject();
+        if (selectedProject == null) {
+            return null;
+        }
+        return getProjectModel(selectedProject);
+    }
+
+    public static IProject getSelectedProject() {
         ISelectionService selectionService = PlatformUI.getWorkbench().getActiveWorkbenchWindow().getSelectionService();
         ISelection selection = selectionService.getSelection();
         if (selection instanceof IStructuredSelection) {
             Object element = ((IStructuredSelection) selection)
                     .getFirstElement();
-            IProject selectedProject = (IProject) element;
-            try {
-                for (IResource resource : selectedProject.members()) {
-                    if (resource.getFullPath().toOSString().endsWith(".uml") || resource.getFullPath().toOSString().endsWith(".UML")) {
-                        return resource.getLocation().toString();
-                    }
+            return (IProject) element;
+        }
+        return null;
+    }
+
+    /**
+     * Returns location of the first UML model in the root of the project,
+     * null if the project has no model.
+     */
+    public static String getProjectModel(IProject project) throws AnalyzerException {
+        try {
+            for (IResource resource : project.members()) {
+                if (resource.getFullPath().toOSString().endsWith(".uml") || resource.getFullPath().toOSString().endsWith(".UML")) {
+                    return resource.getLocation().toString();
                 }
-            } catch (CoreException ex) {
-                throw new AnalyzerException("Error obtaining project uml model. ", ex);
             }
-
+        } catch (CoreException ex) {
+            throw new AnalyzerException("Error obtaining project uml model. ", ex);
         }
         return null;
     }
@@ -1,26 +1,162 @@
 package com.mlyncar.dp.analyzer.test;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.Lifeline;
 import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageType;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
 
+/**
+ * Validation of analyzed diagrams, called by analyzers only when validation
+ * is enabled in analyzer configuration.
+ */
 public class TestHelper {
 
     private final static Logger logger = LoggerFactory.getLogger(TestHelper.class);
 
-    public static void validateDiagram(SeqDiagram diagram) {
+    /**
+     * Checks that every message has lifelines of the diagram and that every
+     * return message returns from the last call which was not returned yet.
+     * Synchronous calls have to be returned except the first message of the
+     * diagram, which is the entry call, self calls may have no return.
+     * Violations are logged as warnings.
+     *
+     * @return list of violations, empty for valid diagram
+     */
+    public static List<String> validateDiagram(SeqDiagram diagram) {
+        List<String> violations = new ArrayList<>();
+        if (diagram.getMessages().size() < diagram.getMessageCount()) {
+            violations.add("Only " + diagram.getMessages().size() + " of " + diagram.getMessageCount()
+                    + " messages were kept in the diagram, they cannot be validated");
+            logger.warn("Diagram {}: {}", diagram.getName(), violations.get(0));
+            return violations;
+        }
+        Deque<Message> openCalls = new ArrayDeque<>();
         for (Message message : diagram.getMessages()) {
-            logger.debug("\nTYPE:" + message.getType().getCode() + ";\nNAME: " + message.getName() + ";\nNUMBER: " + message.getSeqNumber()
-                    + ";\nSOURCE: " + message.getSourceLifeline().getName() + ":" + message.getSourceLifeline().getPackageName()
-                    + ";\nTARGET; " + message.getTargetLifeline().getName() + ":" + message.getTargetLifeline().getPackageName());
-            logger.debug("Number of fragments {}", message.getCombFragments().size());
-            for (CombFragment fragment : message.getCombFragments()) {
-                logger.debug("Fragment: {} {}", fragment.getCombFragmentType().getCode(), fragment.getInteractionFragment());
+            if (logger.isDebugEnabled()) {
+                logMessage(message);
+            }
+            if (message.getType() == null) {
+                violations.add("Message " + message.getName() + " has no type");
+                continue;
+            }
+            if (!isDiagramLifeline(diagram, message.getSourceLifeline()) || !isDiagramLifeline(diagram, message.getTargetLifeline())) {
+                violations.add("Message " + message.getName() + " refers to lifeline which is not part of the diagram");
+                continue;
+            }
+            if (message.getType().equals(MessageType.RETURN)) {
+                Message call = openCalls.peek();
+                while (call != null && call.getType().equals(MessageType.SELF) && !isReturnOf(message, call)) {
+                    openCalls.pop();
+                    call = openCalls.peek();
+                }
+                if (call == null || !isReturnOf(message, call)) {
+                    violations.add("Return message " + message.getName() + " number " + message.getSeqNumber() + " does not match any open call");
+                } else {
+                    openCalls.pop();
+                }
+            } else if (message.getType().equals(MessageType.SYNCH) || message.getType().equals(MessageType.SELF)) {
+                openCalls.push(message);
+            }
+        }
+        Message entryCall = diagram.getMessages().isEmpty() ? null : diagram.getMessages().get(0);
+        for (Message call : openCalls) {
+            if (call.getType().equals(MessageType.SYNCH) && call != entryCall) {
+                violations.add("Synchronous call " + call.getName() + " number " + call.getSeqNumber() + " has no return");
+            }
+        }
+        for (String violation : violations) {
+            logger.warn("Diagram {}: {}", diagram.getName(), violation);
+        }
+        return violations;
+    }
+
+    /**
+     * Compares diagrams produced by two analyzers of the same model, diagrams
+     * are expected in the same order with equal messages and fragments.
+     * Differences are logged as warnings.
+     *
+     * @return list of differences, empty for equal diagrams
+     */
+    public static List<String> compareDiagrams(List<SeqDiagram> expected, List<SeqDiagram> actual) {
+        List<String> differences = new ArrayList<>();
+        if (expected.size() != actual.size()) {
+            differences.add("Expected " + expected.size() + " diagrams, found " + actual.size());
+        }
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            SeqDiagram expectedDiagram = expected.get(i);
+            SeqDiagram actualDiagram = actual.get(i);
+            String diagramName = expectedDiagram.getName();
+            if (!equal(diagramName, actualDiagram.getName())) {
+                differences.add("Diagram " + i + " is named " + actualDiagram.getName() + " instead of " + diagramName);
+                continue;
+            }
+            List<Message> expectedMessages = expectedDiagram.getMessages();
+            List<Message> actualMessages = actualDiagram.getMessages();
+            if (expectedMessages.size() != actualMessages.size()) {
+                differences.add("Diagram " + diagramName + " has " + actualMessages.size() + " messages instead of " + expectedMessages.size());
             }
-            logger.debug("---------------------------");
+            for (int j = 0; j < Math.min(expectedMessages.size(), actualMessages.size()); j++) {
+                String expectedMessage = describeMessage(expectedMessages.get(j));
+                String actualMessage = describeMessage(actualMessages.get(j));
+                if (!expectedMessage.equals(actualMessage)) {
+                    differences.add("Diagram " + diagramName + " message " + j + " is " + actualMessage + " instead of " + expectedMessage);
+                }
+            }
+        }
+        for (String difference : differences) {
+            logger.warn(difference);
         }
+        return differences;
+    }
+
+    private static String describeMessage(Message message) {
+        StringBuilder description = new StringBuilder();
+        description.append(message.getType()).append(' ').append(message.getName()).append(" number ").append(message.getSeqNumber())
+                .append(" from ").append(getLifelineName(message.getSourceLifeline())).append(':').append(getLifelinePackage(message.getSourceLifeline()))
+                .append(" to ").append(getLifelineName(message.getTargetLifeline())).append(':').append(getLifelinePackage(message.getTargetLifeline()));
+        for (CombFragment fragment : message.getCombFragments()) {
+            description.append(" [").append(fragment.getCombFragmentType().getCode()).append(' ').append(fragment.getInteractionFragment()).append(']');
+        }
+        return description.toString();
+    }
+
+    private static boolean equal(String first, String second) {
+        return first == null ? second == null : first.equals(second);
+    }
+
+    private static boolean isReturnOf(Message message, Message call) {
+        return call.getTargetLifeline() == message.getSourceLifeline() && call.getSourceLifeline() == message.getTargetLifeline();
+    }
+
+    private static boolean isDiagramLifeline(SeqDiagram diagram, Lifeline lifeline) {
+        return lifeline != null && lifeline.getName() != null
+                && diagram.getLifeline(lifeline.getName(), lifeline.getPackageName()) == lifeline;
+    }
+
+    private static void logMessage(Message message) {
+        logger.debug("Message {} {} number {} from {}:{} to {}:{} with {} fragments", message.getType(), message.getName(), message.getSeqNumber(),
+                getLifelineName(message.getSourceLifeline()), getLifelinePackage(message.getSourceLifeline()),
+                getLifelineName(message.getTargetLifeline()), getLifelinePackage(message.getTargetLifeline()),
+                message.getCombFragments().size());
+        for (CombFragment fragment : message.getCombFragments()) {
+            logger.debug("Fragment: {} {}", fragment.getCombFragmentType().getCode(), fragment.getInteractionFragment());
+        }
+    }
+
+    private static String getLifelineName(Lifeline lifeline) {
+        return lifeline == null ? null : lifeline.getName();
+    }
+
+    private static String getLifelinePackage(Lifeline lifeline) {
+        return lifeline == null ? null : lifeline.getPackageName();
     }
 }
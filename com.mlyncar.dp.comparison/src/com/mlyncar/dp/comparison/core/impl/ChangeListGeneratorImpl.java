@@ -2,7 +2,7 @@ package com.mlyncar.dp.comparison.core.impl;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +19,8 @@ import com.mlyncar.dp.transformer.entity.NodeCombinedFragment;
 
 public class ChangeListGeneratorImpl implements ChangeListGenerator {
 
+    private static final AtomicLong CHANGE_IDS = new AtomicLong();
+
     private final Logger logger = LoggerFactory.getLogger(ChangeListGeneratorImpl.class);
 
     @Override
@@ -35,7 +37,7 @@ public class ChangeListGeneratorImpl implements ChangeListGenerator {
         }
         changes.add(change);
         for (NodeCombinedFragment fragment : node.combinedFragments()) {
-            changes.add(new ChangeImpl(UUID.randomUUID().toString(), ChangeType.FRAGMENT_ADD, fragment, null));
+            changes.add(new ChangeImpl(CHANGE_IDS.incrementAndGet(), ChangeType.FRAGMENT_ADD, fragment, null));
         }
         return changes;
     }
@@ -116,11 +118,11 @@ public class ChangeListGeneratorImpl implements ChangeListGenerator {
 
     @Override
     public Change createFragmentAddChange(ChangeComponent newValue) {
-        return new ChangeImpl(UUID.randomUUID().toString(), ChangeType.FRAGMENT_ADD, newValue, null);
+        return new ChangeImpl(CHANGE_IDS.incrementAndGet(), ChangeType.FRAGMENT_ADD, newValue, null);
     }
 
     @Override
     public Change createFragmentRemoveChange(ChangeComponent newValue) {
-        return new ChangeImpl(UUID.randomUUID().toString(), ChangeType.FRAGMENT_REMOVE, newValue, null);
+        return new ChangeImpl(CHANGE_IDS.incrementAndGet(), ChangeType.FRAGMENT_REMOVE, newValue, null);
     }
 }
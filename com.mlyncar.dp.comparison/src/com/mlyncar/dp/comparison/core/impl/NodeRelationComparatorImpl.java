@@ -69,7 +69,8 @@ public class NodeRelationComparatorImpl implements NodeRelationComparator {
     		}
     	}
     	if(count>1) {
-    		if(subNode.getLeftSibling() == null || referenceNode.getLeftSibling() == null) {
+    		Node subNodeSibling = subNode.getLeftSibling();
+    		if(subNodeSibling == null || referenceNode.getLeftSibling() == null) {
     			return true;
     		}
     		Node node = referenceNode.getLeftSibling();
@@ -77,7 +78,7 @@ public class NodeRelationComparatorImpl implements NodeRelationComparator {
     			if(edgesEqualName(node, subNode)) {
     				return false;
     			}
-    			if(edgesEqualName(subNode.getLeftSibling(), node)) {
+    			if(edgesEqualName(subNodeSibling, node)) {
     				return true;
     			}
     			node = node.getLeftSibling();
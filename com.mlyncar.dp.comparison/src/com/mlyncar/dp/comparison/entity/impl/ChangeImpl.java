@@ -11,6 +11,7 @@ import com.mlyncar.dp.transformer.entity.ChangeComponent;
 public class ChangeImpl implements Change {
 
     private String elementId;
+    private long elementSequenceId;
     private ChangeType changeType;
     private ChangeComponent newValue;
     private ChangeComponent oldValue;
@@ -22,6 +23,17 @@ public class ChangeImpl implements Change {
         this.oldValue = oldValue;
     }
 
+    /**
+     * Creates change of element without identifier, sequence number of the
+     * change is converted to identifier on the first request.
+     */
+    public ChangeImpl(long elementSequenceId, ChangeType changeType, ChangeComponent newValue, ChangeComponent oldValue) {
+        this.elementSequenceId = elementSequenceId;
+        this.changeType = changeType;
+        this.newValue = newValue;
+        this.oldValue = oldValue;
+    }
+
     public ChangeImpl(String elementId, ChangeType changeType) {
         this.elementId = elementId;
         this.changeType = changeType;
@@ -39,6 +51,9 @@ public class ChangeImpl implements Change {
 
     @Override
     public String getElementId() {
+        if (this.elementId == null && this.elementSequenceId != 0) {
+            this.elementId = "change" + this.elementSequenceId;
+        }
         return this.elementId;
     }
 
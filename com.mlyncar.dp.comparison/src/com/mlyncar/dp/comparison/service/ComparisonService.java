@@ -1,11 +1,17 @@
 package com.mlyncar.dp.comparison.service;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.mlyncar.dp.analyzer.config.AnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.config.ProjectContext;
+import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+
 import com.mlyncar.dp.comparison.core.GraphComparator;
 import com.mlyncar.dp.comparison.core.impl.GraphComparatorImpl;
 import com.mlyncar.dp.comparison.entity.Change;
@@ -24,16 +30,44 @@ import com.mlyncar.dp.transformer.service.TransformationService;
 public class ComparisonService {
 
     private final Logger logger = LoggerFactory.getLogger(ComparisonService.class);
+    private final AnalyzerConfiguration configuration;
+    private final ProjectContext projectContext;
+
+    public ComparisonService() {
+        this(new AnalyzerConfiguration());
+    }
+
+    public ComparisonService(AnalyzerConfiguration configuration) {
+        this(configuration, null);
+    }
+
+    /**
+     * @param projectContext synchronized project, project selected in the
+     * workbench is used when null
+     */
+    public ComparisonService(AnalyzerConfiguration configuration, ProjectContext projectContext) {
+        this.configuration = configuration;
+        this.projectContext = projectContext;
+    }
 
     public List<ChangeLog> compareUmlModelWithSourceCode() throws ComparisonException {
     	List<ChangeLog> logs = new ArrayList<ChangeLog>();
-        TransformationService service = new TransformationService();
+        TransformationService service = new TransformationService(configuration, projectContext);
         GraphComparator comparator = new GraphComparatorImpl(service);
         try {
         	
             logger.debug("Starting to generate changes between graph structures.");
-            Graph umlGraph1 = service.getGraphStructureFromSourceCode();
-            for(Graph umlGraph2 : service.getGraphStructuresFromUmlModel()) {
+            if (configuration.isUmlLazy()) {
+                return compareLazyUmlDiagrams(service, comparator);
+            }
+            List<Graph> umlGraphs = service.getGraphStructuresFromUmlModel();
+            Set<String> interactionNames = new HashSet<String>();
+            for (Graph umlGraph : umlGraphs) {
+                interactionNames.add(umlGraph.getSeqDiagram().getName());
+            }
+            List<Graph> codeGraphs = service.getGraphStructuresFromSourceCode(interactionNames);
+            for(Graph umlGraph2 : umlGraphs) {
+                Graph umlGraph1 = findSourceCodeGraph(codeGraphs, umlGraph2.getSeqDiagram());
                 ChangeLog log = comparator.compareGraphStructures(umlGraph1, umlGraph2);
                 logs.add(log);
                 ComparisonTestHelper.printChanges(log);
@@ -46,6 +80,116 @@ public class ComparisonService {
         }
     }
 
+    /**
+     * Matches lazy UML diagrams with source code entry points by their names
+     * first, diagram is transformed, and so its messages are analyzed, only
+     * once it is compared. Missing entry point fails the comparison before
+     * any UML diagram is transformed.
+     */
+    private List<ChangeLog> compareLazyUmlDiagrams(TransformationService service, GraphComparator comparator)
+            throws GraphTransformationException, GraphBindingException, ComparisonException {
+        List<SeqDiagram> umlDiagrams = service.getSequenceDiagramsFromUmlModel();
+        Set<String> interactionNames = new HashSet<String>();
+        for (SeqDiagram umlDiagram : umlDiagrams) {
+            interactionNames.add(umlDiagram.getName());
+        }
+        List<Graph> codeGraphs = service.getGraphStructuresFromSourceCode(interactionNames);
+        List<Graph> matchedCodeGraphs = new ArrayList<Graph>();
+        for (SeqDiagram umlDiagram : umlDiagrams) {
+            matchedCodeGraphs.add(findSourceCodeGraph(codeGraphs, umlDiagram));
+        }
+        List<ChangeLog> logs = new ArrayList<ChangeLog>();
+        for (int i = 0; i < umlDiagrams.size(); i++) {
+            Graph umlGraph = service.getGraphStructureFromUmlDiagram(umlDiagrams.get(i));
+            ChangeLog log = comparator.compareGraphStructures(matchedCodeGraphs.get(i), umlGraph);
+            logs.add(log);
+            ComparisonTestHelper.printChanges(log);
+        }
+        return logs;
+    }
+
+    /**
+     * Returns graph of entry point named after the diagram interaction, graph
+     * of entry point matching configured entry pattern is used if there is no
+     * such entry point. Of more entry points, the one declared in the owner
+     * of the interaction is preferred, otherwise the first one is used.
+     */
+    private Graph findSourceCodeGraph(List<Graph> codeGraphs, SeqDiagram umlDiagram) throws ComparisonException {
+        String interactionName = umlDiagram.getName();
+        List<Graph> entryGraphs = new ArrayList<Graph>();
+        List<Graph> patternGraphs = new ArrayList<Graph>();
+        for (Graph codeGraph : codeGraphs) {
+            String entryName = codeGraph.getSeqDiagram().getName();
+            if (entryName.equals(interactionName)) {
+                entryGraphs.add(codeGraph);
+            }
+            if (configuration.getEntryPointPattern().matcher(entryName).matches()) {
+                patternGraphs.add(codeGraph);
+            }
+        }
+        if (!entryGraphs.isEmpty()) {
+            return selectEntryGraph(entryGraphs, umlDiagram);
+        }
+        if (patternGraphs.isEmpty()) {
+            throw new ComparisonException("Comparison Service failed: No source code entry point found for diagram " + interactionName);
+        }
+        logger.debug("No entry point named {}, comparing diagram with entry point matching {}", interactionName,
+                configuration.getEntryPointPattern().pattern());
+        return selectEntryGraph(patternGraphs, umlDiagram);
+    }
+
+    private Graph selectEntryGraph(List<Graph> entryGraphs, SeqDiagram umlDiagram) {
+        if (entryGraphs.size() == 1) {
+            return entryGraphs.get(0);
+        }
+        String ownerName = getInteractionOwnerName(umlDiagram);
+        Graph selectedGraph = entryGraphs.get(0);
+        for (Graph entryGraph : entryGraphs) {
+            if (ownerName != null && ownerName.equals(getEntryClassName(entryGraph))) {
+                selectedGraph = entryGraph;
+                break;
+            }
+        }
+        StringBuilder otherEntryPoints = new StringBuilder();
+        for (Graph entryGraph : entryGraphs) {
+            if (entryGraph != selectedGraph) {
+                if (otherEntryPoints.length() > 0) {
+                    otherEntryPoints.append(", ");
+                }
+                otherEntryPoints.append(entryGraph.getSeqDiagram().getId());
+            }
+        }
+        logger.warn("Diagram {} matches more than one source code entry point, using {} and ignoring {}", umlDiagram.getName(),
+                selectedGraph.getSeqDiagram().getId(), otherEntryPoints);
+        return selectedGraph;
+    }
+
+    /**
+     * Returns name of element owning the interaction, taken from qualified
+     * name of the interaction used as id of UML diagram.
+     */
+    private String getInteractionOwnerName(SeqDiagram umlDiagram) {
+        String qualifiedName = umlDiagram.getId();
+        if (qualifiedName == null) {
+            return null;
+        }
+        String[] names = qualifiedName.split("::");
+        return names.length > 1 ? names[names.length - 2] : null;
+    }
+
+    /**
+     * Returns name of class declaring the entry method, taken from id of
+     * the diagram composed of package, class and method name.
+     */
+    private String getEntryClassName(Graph entryGraph) {
+        String entryId = entryGraph.getSeqDiagram().getId();
+        if (entryId == null || entryId.lastIndexOf('.') < 0) {
+            return null;
+        }
+        String className = entryId.substring(0, entryId.lastIndexOf('.'));
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
     public List<Change> findChangesInGraph(Graph referenceTree, Graph subTree) {
         throw new UnsupportedOperationException("Not supported yet");
     }
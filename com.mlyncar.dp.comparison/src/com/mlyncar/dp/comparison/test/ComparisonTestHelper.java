@@ -14,6 +14,9 @@ public class ComparisonTestHelper {
     private static final Logger logger = LoggerFactory.getLogger(ComparisonTestHelper.class);
 
     public static void printChanges(ChangeLog log) {
+        if (!logger.isDebugEnabled()) {
+            return;
+        }
         logger.debug("List of found changes:");
         for (Change change : log.changes()) {
             if (change.getChangeType().equals(ChangeType.FRAGMENT_ADD) || change.getChangeType().equals(ChangeType.FRAGMENT_REMOVE)) {
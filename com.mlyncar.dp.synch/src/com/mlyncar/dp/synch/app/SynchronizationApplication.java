@@ -0,0 +1,60 @@
+package com.mlyncar.dp.synch.app;
+
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.config.ProjectContext;
+import com.mlyncar.dp.analyzer.exception.AnalyzerException;
+import com.mlyncar.dp.synch.exception.SynchronizationException;
+import com.mlyncar.dp.synch.service.SynchronizationService;
+
+/**
+ * Headless synchronization of single project. Project is given either by
+ * name of workspace project (-project name) or by directory of the project
+ * (-projectLocation dir), which is imported to the workspace if needed.
+ */
+public class SynchronizationApplication implements IApplication {
+
+    private static final Integer EXIT_FAILURE = Integer.valueOf(1);
+
+    private final Logger logger = LoggerFactory.getLogger(SynchronizationApplication.class);
+
+    @Override
+    public Object start(IApplicationContext context) throws Exception {
+        String[] args = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+        String projectName = getArgument(args, "-project");
+        String projectLocation = getArgument(args, "-projectLocation");
+        if (projectName == null && projectLocation == null) {
+            logger.error("Project to synchronize is not specified, use -project <name> or -projectLocation <dir>.");
+            return EXIT_FAILURE;
+        }
+        try {
+            ProjectContext projectContext = projectLocation != null
+                    ? ProjectContext.forProjectLocation(projectLocation) : ProjectContext.forProject(projectName);
+            new SynchronizationService().synchronizeDiagramsAndSourceCode(projectContext);
+            logger.info("Synchronization of model {} finished.", projectContext.getModelPath());
+            return IApplication.EXIT_OK;
+        } catch (AnalyzerException | SynchronizationException ex) {
+            logger.error("Synchronization failed.", ex);
+            return EXIT_FAILURE;
+        }
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    private String getArgument(String[] args, String name) {
+        if (args == null) {
+            return null;
+        }
+        for (int i = 0; i < args.length - 1; i++) {
+            if (name.equals(args[i])) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+}
@@ -5,6 +5,9 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.mlyncar.dp.analyzer.config.AnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.config.ProjectContext;
+import com.mlyncar.dp.analyzer.exception.AnalyzerException;
 import com.mlyncar.dp.comparison.entity.ChangeLog;
 import com.mlyncar.dp.comparison.exception.ComparisonException;
 import com.mlyncar.dp.comparison.service.ComparisonService;
@@ -21,10 +24,24 @@ public class SynchronizationService {
 
     private final Logger logger = LoggerFactory.getLogger(SynchronizationService.class);
 
+    /**
+     * Synchronizes project selected in the workbench.
+     */
     public void synchronizeDiagramsAndSourceCode() throws SynchronizationException {
+        try {
+            synchronizeDiagramsAndSourceCode(ProjectContext.fromSelection());
+        } catch (AnalyzerException ex) {
+            throw new SynchronizationException("Unable to synchronize source code and diagrams because project cannot be resolved.", ex);
+        }
+    }
+
+    /**
+     * Synchronizes given project, does not require running workbench.
+     */
+    public void synchronizeDiagramsAndSourceCode(ProjectContext projectContext) throws SynchronizationException {
 
-        ComparisonService service = new ComparisonService();
         try {
+            ComparisonService service = new ComparisonService(new AnalyzerConfiguration(PropertyLoader.getInstance().getProperties()), projectContext);
             List<ChangeLog> changeLogs = service.compareUmlModelWithSourceCode();
             InterpreterService interpreterService = new InterpreterService(PropertyLoader.getInstance().getProperty("synch.changelog"));
             SynchronizationEngine ruleEngine = new SynchronizationEngineImpl();
@@ -65,8 +65,15 @@ public class GraphStatsProviderImpl implements GraphStatsProvider {
 	public Integer getNumberOfFragments(String fragmentToIgnore) {
 		
         int count = 0;
-        for (Message message : diagram.getMessages()) {
-        	count += message.getCombFragments().size();
+        if (diagram.getMessages().size() < diagram.getMessageCount()) {
+            // messages were streamed to the graph without being kept, every node holds fragments of its message
+            for (LeveledNode leveledNode : graph.getOrderedNodes()) {
+                count += leveledNode.getNode().combinedFragments().size();
+            }
+        } else {
+            for (Message message : diagram.getMessages()) {
+            	count += message.getCombFragments().size();
+            }
         }
         logger.debug("Number of fragments in diagram {}", count);
         return count;
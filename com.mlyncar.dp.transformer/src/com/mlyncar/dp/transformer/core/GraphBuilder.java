@@ -0,0 +1,19 @@
+package com.mlyncar.dp.transformer.core;
+
+import com.mlyncar.dp.analyzer.entity.MessageSink;
+import com.mlyncar.dp.transformer.entity.Graph;
+import com.mlyncar.dp.transformer.exception.GraphTransformationException;
+
+/**
+ * Builds graph of one diagram from its messages as they are analyzed.
+ */
+public interface GraphBuilder extends MessageSink {
+
+    /**
+     * Returns graph of all messages received so far.
+     *
+     * @throws GraphTransformationException when some message could not be
+     * stored into the graph or no message was received
+     */
+    public Graph getGraph() throws GraphTransformationException;
+}
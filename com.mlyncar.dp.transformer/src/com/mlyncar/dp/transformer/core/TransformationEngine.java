@@ -7,4 +7,10 @@ import com.mlyncar.dp.transformer.exception.GraphTransformationException;
 public interface TransformationEngine {
 
     public Graph transformSequenceDiagram(SeqDiagram diagram) throws GraphTransformationException;
+
+    /**
+     * Creates builder of graph of the diagram, which accepts messages of the
+     * diagram before the diagram is fully analyzed.
+     */
+    public GraphBuilder createGraphBuilder(SeqDiagram diagram);
 }
@@ -0,0 +1,161 @@
+package com.mlyncar.dp.transformer.core.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.config.AnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+import com.mlyncar.dp.transformer.core.GraphBuilder;
+import com.mlyncar.dp.transformer.entity.EdgeType;
+import com.mlyncar.dp.transformer.entity.Graph;
+import com.mlyncar.dp.transformer.entity.Node;
+import com.mlyncar.dp.transformer.entity.impl.CompactGraph;
+import com.mlyncar.dp.transformer.entity.impl.EdgeImpl;
+import com.mlyncar.dp.transformer.entity.impl.NodeCombinedFragmentImpl;
+import com.mlyncar.dp.transformer.entity.impl.NodeImpl;
+import com.mlyncar.dp.transformer.entity.impl.TreeGraph;
+import com.mlyncar.dp.transformer.exception.GraphTransformationException;
+import com.mlyncar.dp.transformer.exception.MessageTypeException;
+import com.mlyncar.dp.transformer.test.TransformationTestHelper;
+
+/**
+ * Stores every received message into the graph right away. Root node is
+ * created from source lifeline of the first message. Failure to store a
+ * message is reported by getGraph, further messages are ignored. Compact
+ * graph is built when it is enabled in analyzer configuration.
+ */
+public class GraphBuilderImpl implements GraphBuilder {
+
+    private final Logger logger = LoggerFactory.getLogger(GraphBuilderImpl.class);
+    private final SeqDiagram diagram;
+    private final AnalyzerConfiguration configuration;
+    private final Deque<Activation> activations = new ArrayDeque<>();
+    private Graph graph;
+    private CompactGraph compactGraph;
+    private GraphTransformationException failure;
+    private boolean validated;
+
+    public GraphBuilderImpl(SeqDiagram diagram, AnalyzerConfiguration configuration) {
+        this.diagram = diagram;
+        this.configuration = configuration;
+    }
+
+    @Override
+    public void addMessage(Message message) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            if (graph == null) {
+                activations.push(createRootNode(message.getSourceLifeline().getName(), message.getSourceLifeline().getPackageName()));
+            }
+            storeMessageIntoGraph(message);
+        } catch (GraphTransformationException ex) {
+            failure = ex;
+        }
+    }
+
+    @Override
+    public Graph getGraph() throws GraphTransformationException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (graph == null) {
+            throw new GraphTransformationException("Diagram " + diagram.getName() + " has no messages.");
+        }
+        if (configuration.isValidationEnabled() && !validated) {
+            new TransformationTestHelper().validateGraph(graph);
+            validated = true;
+        }
+        return graph;
+    }
+
+    /**
+     * Pops activations until the node which sends the message is on the top
+     * of the stack and pushes node created by the message. Activation of the
+     * root node is never popped, activation of self message node is popped
+     * once the node has a reply and reply nodes are popped by the next
+     * message.
+     */
+    private void storeMessageIntoGraph(Message message) throws GraphTransformationException {
+        try {
+            logger.debug("Finding suitable place for node {} {}", message.getName(), message.getTargetLifeline().getName());
+            EdgeType edgeType = EdgeType.fromCode(message.getType().getCode());
+            String sourceName = message.getSourceLifeline().getName();
+            Activation activation = activations.peek();
+            while (!activation.root
+                    && (activation.reply || !activation.name.equals(sourceName) || (activation.self && activation.replied))) {
+                activations.pop();
+                activation = activations.peek();
+            }
+            Activation child = createChildNode(activation, message, edgeType);
+            if (edgeType.equals(EdgeType.RETURN)) {
+                activation.replied = true;
+            }
+            activations.push(child);
+            logger.debug("Node {} with message {} inserted to {}", child.name, message.getName(), activation.name);
+        } catch (MessageTypeException ex) {
+            throw new GraphTransformationException("Exception while creating graph structure: ", ex);
+        }
+    }
+
+    private Activation createRootNode(String name, String packageName) {
+        if (configuration.isCompactGraph()) {
+            compactGraph = new CompactGraph(diagram);
+            graph = compactGraph;
+            return new Activation(null, compactGraph.addRootNode(name, packageName), name, null);
+        }
+        Node rootNode = new NodeImpl(null, null, name, packageName);
+        graph = new TreeGraph(rootNode, diagram);
+        return new Activation(rootNode, 0, name, null);
+    }
+
+    private Activation createChildNode(Activation parent, Message message, EdgeType edgeType) throws GraphTransformationException {
+        String name = message.getTargetLifeline().getName();
+        if (compactGraph != null) {
+            int node = compactGraph.addNode(parent.index, name, message.getTargetLifeline().getPackageName(),
+                    message.getName(), edgeType, message.getCombFragments());
+            return new Activation(null, node, name, edgeType);
+        }
+        Node node = new NodeImpl(new EdgeImpl(message.getName(), edgeType), parent.node, name, message.getTargetLifeline().getPackageName());
+        fillNodeWithFragments(node, message.getCombFragments());
+        parent.node.addChildNode(node);
+        return new Activation(node, 0, name, edgeType);
+    }
+
+    private void fillNodeWithFragments(Node node, List<CombFragment> fragments) throws GraphTransformationException {
+        for (CombFragment fragment : fragments) {
+            node.addCombinedFragment(new NodeCombinedFragmentImpl(fragment, node));
+        }
+    }
+
+    /**
+     * Node on the path from the root node to the last inserted node, nodes
+     * of compact graph are referred by their number.
+     */
+    private static class Activation {
+
+        final Node node;
+        final int index;
+        final String name;
+        final boolean root;
+        final boolean reply;
+        final boolean self;
+        boolean replied;
+
+        Activation(Node node, int index, String name, EdgeType createEdgeType) {
+            this.node = node;
+            this.index = index;
+            this.name = name;
+            this.root = createEdgeType == null;
+            this.reply = EdgeType.RETURN.equals(createEdgeType);
+            this.self = EdgeType.SELF.equals(createEdgeType);
+        }
+    }
+}
@@ -46,6 +46,14 @@ public interface Node extends ChangeComponent {
 
     public Node getLeftSibling();
 
+    public Node getRightSibling();
+
+    /**
+     * Returns position of the node among child nodes of its parent, -1 if
+     * the node is not a child of its parent node.
+     */
+    public int getIndexInParent();
+
     public String getPackage();
 
     public boolean containsFragment(NodeCombinedFragment fragment);
@@ -0,0 +1,570 @@
+package com.mlyncar.dp.transformer.entity.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+import com.mlyncar.dp.transformer.entity.Edge;
+import com.mlyncar.dp.transformer.entity.EdgeType;
+import com.mlyncar.dp.transformer.entity.Graph;
+import com.mlyncar.dp.transformer.entity.LeveledNode;
+import com.mlyncar.dp.transformer.entity.Node;
+import com.mlyncar.dp.transformer.entity.NodeCombinedFragment;
+import com.mlyncar.dp.transformer.entity.NodeCombinedFragmentType;
+import com.mlyncar.dp.transformer.exception.CombinedFragmentTypeException;
+import com.mlyncar.dp.transformer.exception.GraphTransformationException;
+import com.mlyncar.dp.transformer.helper.impl.TreeOrderGeneratorImpl;
+
+/**
+ * Graph storing its nodes in parallel arrays indexed by node number. Names
+ * are interned per graph and combined fragments of nodes refer to shared
+ * fragment contexts, so a node takes a few dozens of bytes. Nodes are
+ * exposed as views, which are created on first access and kept, so every
+ * node is represented by a single instance. Combined fragments of a node are
+ * materialized on first access to them.
+ */
+public class CompactGraph implements Graph {
+
+    private static final int NONE = -1;
+    private static final byte NO_EDGE = -1;
+    private static final EdgeType[] EDGE_TYPES = EdgeType.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String treeGraphId;
+    private final String nodeIdPrefix;
+    private final SeqDiagram diagram;
+    private Integer treeDepth = 0;
+
+    private int size;
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private int[] firstChildren = new int[INITIAL_CAPACITY];
+    private int[] lastChildren = new int[INITIAL_CAPACITY];
+    private int[] nextSiblings = new int[INITIAL_CAPACITY];
+    private int[] previousSiblings = new int[INITIAL_CAPACITY];
+    private int[] positions = new int[INITIAL_CAPACITY];
+    private int[] nameIds = new int[INITIAL_CAPACITY];
+    private int[] packageIds = new int[INITIAL_CAPACITY];
+    private int[] edgeNameIds = new int[INITIAL_CAPACITY];
+    private byte[] edgeTypes = new byte[INITIAL_CAPACITY];
+    private int[] fragmentContextIds = new int[INITIAL_CAPACITY];
+    private NodeView[] views;
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<FragmentContext> fragmentContexts = new ArrayList<>();
+    private final Map<FragmentContext, Integer> fragmentContextIdsByValue = new HashMap<>();
+    private List<CombFragment> lastFragments;
+    private int lastFragmentContextId;
+    private final Map<Integer, List<NodeCombinedFragment>> materializedFragments = new HashMap<>();
+    private final Map<Integer, String> assignedIds = new HashMap<>();
+
+    public CompactGraph(SeqDiagram diagram) {
+        long graphId = ElementSequence.nextGraphId();
+        this.treeGraphId = Long.toString(graphId);
+        this.nodeIdPrefix = "g" + graphId + "n";
+        this.diagram = diagram;
+        intern(null);
+        fragmentContexts.add(FragmentContext.EMPTY);
+    }
+
+    /**
+     * Adds root node, which has no create edge, and returns its number.
+     */
+    public int addRootNode(String name, String packageName) {
+        if (size != 0) {
+            throw new IllegalStateException("Root node of graph " + treeGraphId + " is already added.");
+        }
+        return appendNode(NONE, name, packageName, 0, NO_EDGE, 0);
+    }
+
+    /**
+     * Adds node created by given edge as the last child of given parent and
+     * returns its number.
+     */
+    public int addNode(int parent, String name, String packageName, String edgeName, EdgeType edgeType, List<CombFragment> fragments)
+            throws GraphTransformationException {
+        checkNode(parent);
+        int node = appendNode(parent, name, packageName, intern(edgeName), (byte) edgeType.ordinal(), getFragmentContextId(fragments));
+        linkLastChild(parent, node);
+        return node;
+    }
+
+    public int getNodeCount() {
+        return size;
+    }
+
+    /**
+     * Returns view of node with given number.
+     */
+    public Node getNode(int node) {
+        checkNode(node);
+        if (views == null) {
+            views = new NodeView[parents.length];
+        } else if (views.length < parents.length) {
+            views = Arrays.copyOf(views, parents.length);
+        }
+        NodeView view = views[node];
+        if (view == null) {
+            view = new NodeView(node);
+            views[node] = view;
+        }
+        return view;
+    }
+
+    @Override
+    public String getTreeGraphId() {
+        return treeGraphId;
+    }
+
+    @Override
+    public Node getRootNode() {
+        return size == 0 ? null : getNode(0);
+    }
+
+    @Override
+    public Integer getTreeDepth() {
+        return treeDepth;
+    }
+
+    @Override
+    public void incrementTreeDepth() {
+        treeDepth++;
+    }
+
+    @Override
+    public List<LeveledNode> getOrderedNodes() {
+        return new TreeOrderGeneratorImpl().createTreeTravesralOrder(this);
+    }
+
+    @Override
+    public SeqDiagram getSeqDiagram() {
+        return diagram;
+    }
+
+    private int appendNode(int parent, String name, String packageName, int edgeNameId, byte edgeType, int fragmentContextId) {
+        if (size == parents.length) {
+            int capacity = size + (size >> 1);
+            parents = Arrays.copyOf(parents, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            lastChildren = Arrays.copyOf(lastChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            previousSiblings = Arrays.copyOf(previousSiblings, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            nameIds = Arrays.copyOf(nameIds, capacity);
+            packageIds = Arrays.copyOf(packageIds, capacity);
+            edgeNameIds = Arrays.copyOf(edgeNameIds, capacity);
+            edgeTypes = Arrays.copyOf(edgeTypes, capacity);
+            fragmentContextIds = Arrays.copyOf(fragmentContextIds, capacity);
+        }
+        int node = size++;
+        parents[node] = parent;
+        firstChildren[node] = NONE;
+        lastChildren[node] = NONE;
+        nextSiblings[node] = NONE;
+        previousSiblings[node] = NONE;
+        positions[node] = NONE;
+        nameIds[node] = intern(name);
+        packageIds[node] = intern(packageName);
+        edgeNameIds[node] = edgeNameId;
+        edgeTypes[node] = edgeType;
+        fragmentContextIds[node] = fragmentContextId;
+        return node;
+    }
+
+    private void linkLastChild(int parent, int child) {
+        parents[child] = parent;
+        nextSiblings[child] = NONE;
+        previousSiblings[child] = lastChildren[parent];
+        if (lastChildren[parent] == NONE) {
+            firstChildren[parent] = child;
+            positions[child] = 0;
+        } else {
+            positions[child] = positions[lastChildren[parent]] + 1;
+            nextSiblings[lastChildren[parent]] = child;
+        }
+        lastChildren[parent] = child;
+    }
+
+    /**
+     * Links child after given sibling, or as the first child when the
+     * sibling is NONE. Positions of following siblings are shifted.
+     */
+    private void linkAfter(int parent, int sibling, int child) {
+        parents[child] = parent;
+        if (sibling == NONE) {
+            nextSiblings[child] = firstChildren[parent];
+            firstChildren[parent] = child;
+        } else {
+            nextSiblings[child] = nextSiblings[sibling];
+            nextSiblings[sibling] = child;
+        }
+        previousSiblings[child] = sibling;
+        positions[child] = sibling == NONE ? 0 : positions[sibling] + 1;
+        if (nextSiblings[child] == NONE) {
+            lastChildren[parent] = child;
+        } else {
+            previousSiblings[nextSiblings[child]] = child;
+        }
+        for (int next = nextSiblings[child]; next != NONE; next = nextSiblings[next]) {
+            positions[next]++;
+        }
+    }
+
+    /**
+     * Unlinks child from parent's children. A node belongs to the list when
+     * it points to the parent and is either the first child or has a
+     * previous sibling, so membership is checked in constant time. Positions
+     * of following siblings are shifted.
+     */
+    private boolean unlink(int parent, int child) {
+        if (child == NONE || parents[child] != parent || (previousSiblings[child] == NONE && firstChildren[parent] != child)) {
+            return false;
+        }
+        int previous = previousSiblings[child];
+        int next = nextSiblings[child];
+        if (previous == NONE) {
+            firstChildren[parent] = next;
+        } else {
+            nextSiblings[previous] = next;
+        }
+        if (next == NONE) {
+            lastChildren[parent] = previous;
+        } else {
+            previousSiblings[next] = previous;
+        }
+        for (int current = next; current != NONE; current = nextSiblings[current]) {
+            positions[current]--;
+        }
+        nextSiblings[child] = NONE;
+        previousSiblings[child] = NONE;
+        positions[child] = NONE;
+        parents[child] = NONE;
+        return true;
+    }
+
+    private int intern(String value) {
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            strings.add(value);
+            stringIds.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns id of context with equal fragment types and bodies. Only the
+     * last fragment list is remembered, so consecutive messages of the same
+     * fragments skip the lookup and lists of messages are not kept.
+     */
+    private int getFragmentContextId(List<CombFragment> fragments) throws GraphTransformationException {
+        if (fragments == null || fragments.isEmpty()) {
+            return 0;
+        }
+        if (fragments == lastFragments) {
+            return lastFragmentContextId;
+        }
+        FragmentContext context = new FragmentContext(fragments);
+        Integer id = fragmentContextIdsByValue.get(context);
+        if (id == null) {
+            id = fragmentContexts.size();
+            fragmentContexts.add(context);
+            fragmentContextIdsByValue.put(context, id);
+        }
+        lastFragments = fragments;
+        lastFragmentContextId = id;
+        return id;
+    }
+
+    /**
+     * Returns number of given node, NONE for null or for node of another
+     * graph, which cannot be linked to nodes of this graph.
+     */
+    private int indexOf(Node node) {
+        if (!(node instanceof NodeView) || ((NodeView) node).getGraph() != this) {
+            return NONE;
+        }
+        return ((NodeView) node).index;
+    }
+
+    private void checkNode(int node) {
+        if (node < 0 || node >= size) {
+            throw new IndexOutOfBoundsException("Node: " + node + ", Size: " + size);
+        }
+    }
+
+    private List<NodeCombinedFragment> getCombinedFragments(int node, boolean materialize) {
+        List<NodeCombinedFragment> fragments = materializedFragments.get(node);
+        if (fragments != null) {
+            return fragments;
+        }
+        FragmentContext context = fragmentContexts.get(fragmentContextIds[node]);
+        if (context.types.length == 0 && !materialize) {
+            return Collections.emptyList();
+        }
+        fragments = new ArrayList<>(context.types.length);
+        Node view = getNode(node);
+        for (int i = 0; i < context.types.length; i++) {
+            fragments.add(new NodeCombinedFragmentImpl(context.types[i], context.bodies[i], view));
+        }
+        materializedFragments.put(node, fragments);
+        return fragments;
+    }
+
+    /**
+     * Types and bodies of combined fragments shared by nodes of messages
+     * analyzed in equal fragments.
+     */
+    private static class FragmentContext {
+
+        private static final FragmentContext EMPTY = new FragmentContext();
+
+        private final NodeCombinedFragmentType[] types;
+        private final String[] bodies;
+
+        private FragmentContext() {
+            this.types = new NodeCombinedFragmentType[0];
+            this.bodies = new String[0];
+        }
+
+        private FragmentContext(List<CombFragment> fragments) throws GraphTransformationException {
+            this.types = new NodeCombinedFragmentType[fragments.size()];
+            this.bodies = new String[fragments.size()];
+            for (int i = 0; i < types.length; i++) {
+                CombFragment fragment = fragments.get(i);
+                try {
+                    types[i] = NodeCombinedFragmentType.fromCode(fragment.getCombFragmentType().getCode());
+                } catch (CombinedFragmentTypeException e) {
+                    throw new GraphTransformationException("Error transforming combined fragment", e);
+                }
+                bodies[i] = fragment.getInteractionFragment();
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(types) + Arrays.hashCode(bodies);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FragmentContext)) {
+                return false;
+            }
+            FragmentContext other = (FragmentContext) o;
+            return Arrays.equals(types, other.types) && Arrays.equals(bodies, other.bodies);
+        }
+    }
+
+    private class NodeView implements Node {
+
+        private final int index;
+        private EdgeView createEdge;
+
+        private NodeView(int index) {
+            this.index = index;
+        }
+
+        private CompactGraph getGraph() {
+            return CompactGraph.this;
+        }
+
+        @Override
+        public Edge getCreateEdge() {
+            if (edgeTypes[index] == NO_EDGE) {
+                return null;
+            }
+            if (createEdge == null) {
+                createEdge = new EdgeView(index);
+            }
+            return createEdge;
+        }
+
+        @Override
+        public void setCreateEdge(Edge edge) {
+            if (edge == null) {
+                edgeNameIds[index] = 0;
+                edgeTypes[index] = NO_EDGE;
+            } else {
+                edgeNameIds[index] = intern(edge.getName());
+                edgeTypes[index] = (byte) edge.getEdgeType().ordinal();
+            }
+        }
+
+        @Override
+        public String getId() {
+            String id = assignedIds.get(index);
+            return id == null ? nodeIdPrefix + index : id;
+        }
+
+        @Override
+        public void setId(String id) {
+            assignedIds.put(index, id);
+        }
+
+        @Override
+        public String getName() {
+            return strings.get(nameIds[index]);
+        }
+
+        @Override
+        public void setName(String name) {
+            nameIds[index] = intern(name);
+        }
+
+        @Override
+        public Node getParentNode() {
+            return parents[index] == NONE ? null : getNode(parents[index]);
+        }
+
+        @Override
+        public void setParentNode(Node node) {
+            parents[index] = indexOf(node);
+        }
+
+        @Override
+        public List<Node> childNodes() {
+            List<Node> children = new ArrayList<>();
+            for (int child = firstChildren[index]; child != NONE; child = nextSiblings[child]) {
+                children.add(getNode(child));
+            }
+            return Collections.unmodifiableList(children);
+        }
+
+        @Override
+        public void addChildNode(Node node) {
+            int child = indexOf(node);
+            if (child != NONE) {
+                linkLastChild(index, child);
+            }
+        }
+
+        @Override
+        public void addChildNode(Node node, Node leftNeighbour) {
+            int sibling = indexOf(leftNeighbour);
+            if (sibling != NONE && parents[sibling] != index) {
+                sibling = NONE;
+            }
+            int child = indexOf(node);
+            if (child != NONE) {
+                linkAfter(index, sibling, child);
+            }
+        }
+
+        @Override
+        public void removeChildNode(Node node) {
+            unlink(index, indexOf(node));
+        }
+
+        @Override
+        public void removeChildNode(String id) {
+            int child = firstChildren[index];
+            while (child != NONE) {
+                int next = nextSiblings[child];
+                if (getNode(child).getId().equals(id)) {
+                    unlink(index, child);
+                }
+                child = next;
+            }
+        }
+
+        @Override
+        public List<NodeCombinedFragment> combinedFragments() {
+            return getCombinedFragments(index, false);
+        }
+
+        @Override
+        public void addCombinedFragment(NodeCombinedFragment combinedFragment) {
+            getCombinedFragments(index, true).add(combinedFragment);
+        }
+
+        @Override
+        public void removeCombinedFragment(NodeCombinedFragment combinedFragment) {
+            getCombinedFragments(index, true).remove(combinedFragment);
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return firstChildren[index] == NONE;
+        }
+
+        @Override
+        public boolean isReply() {
+            return edgeTypes[index] == EdgeType.RETURN.ordinal();
+        }
+
+        @Override
+        public Node getLeftSibling() {
+            int sibling = previousSiblings[index];
+            return sibling == NONE ? null : getNode(sibling);
+        }
+
+        @Override
+        public Node getRightSibling() {
+            int sibling = nextSiblings[index];
+            return sibling == NONE ? null : getNode(sibling);
+        }
+
+        @Override
+        public int getIndexInParent() {
+            return positions[index];
+        }
+
+        @Override
+        public String getPackage() {
+            return strings.get(packageIds[index]);
+        }
+
+        @Override
+        public String getChangeComponentType() {
+            return "Node";
+        }
+
+        @Override
+        public boolean containsFragment(NodeCombinedFragment fragment) {
+            for (NodeCombinedFragment combFragment : combinedFragments()) {
+                if (fragment.getCombinedFragmentType().equals(combFragment.getCombinedFragmentType()) && fragment.getFragmentBody().equals(combFragment.getFragmentBody())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private class EdgeView implements Edge {
+
+        private final int index;
+
+        private EdgeView(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getName() {
+            return strings.get(edgeNameIds[index]);
+        }
+
+        @Override
+        public void setName(String name) {
+            edgeNameIds[index] = intern(name);
+        }
+
+        @Override
+        public EdgeType getEdgeType() {
+            return EDGE_TYPES[edgeTypes[index]];
+        }
+
+        @Override
+        public void setEdgeType(EdgeType edgeType) {
+            edgeTypes[index] = (byte) edgeType.ordinal();
+        }
+    }
+}
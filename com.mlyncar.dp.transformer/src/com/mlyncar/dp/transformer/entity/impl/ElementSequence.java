@@ -0,0 +1,25 @@
+package com.mlyncar.dp.transformer.entity.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonically increasing identifiers of graphs and nodes, unique while
+ * the platform runs. Identifiers are converted to strings only when they
+ * are requested.
+ */
+final class ElementSequence {
+
+    private static final AtomicLong GRAPH_IDS = new AtomicLong();
+    private static final AtomicLong NODE_IDS = new AtomicLong();
+
+    private ElementSequence() {
+    }
+
+    static long nextGraphId() {
+        return GRAPH_IDS.incrementAndGet();
+    }
+
+    static long nextNodeId() {
+        return NODE_IDS.incrementAndGet();
+    }
+}
@@ -6,7 +6,7 @@ import com.mlyncar.dp.transformer.entity.Node;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.ListIterator;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,7 +23,9 @@ public class NodeImpl implements Node {
     private String name;
     private Node parentNode;
     private Edge createEdge;
+    private final long sequenceId;
     private String id;
+    private int indexInParent = -1;
     private final List<NodeCombinedFragment> combinedFragments = new ArrayList<>();
     private final Logger logger = LoggerFactory.getLogger(NodeImpl.class);
     private final String packageName;
@@ -34,7 +36,7 @@ public class NodeImpl implements Node {
         } else {
             logger.debug("Creating instance of NodeImpl with name: {} and createEdge: Null", name);
         }
-        this.id = UUID.randomUUID().toString();
+        this.sequenceId = ElementSequence.nextNodeId();
         this.createEdge = createEdge;
         this.parentNode = parentNode;
         this.name = name;
@@ -69,29 +71,53 @@ public class NodeImpl implements Node {
     @Override
     public void addChildNode(Node newNode) {
         this.childNodes.add(newNode);
+        indexChildNodes(this.childNodes.size() - 1);
     }
 
     @Override
     public void addChildNode(Node newNode, Node leftNeighbour) {
-        this.childNodes.add(this.childNodes.indexOf(leftNeighbour) + 1, newNode);
+        int index = indexOfChildNode(leftNeighbour) + 1;
+        this.childNodes.add(index, newNode);
+        indexChildNodes(index);
     }
 
     @Override
     public void removeChildNode(Node node) {
-        this.childNodes().remove(node);
+        int index = indexOfChildNode(node);
+        if (index != -1) {
+            this.childNodes.remove(index);
+            indexChildNodes(index);
+        }
     }
 
     @Override
     public void removeChildNode(String id) {
-        for (Node childNode : childNodes) {
-            if (childNode.getId().equals(id)) {
-                childNodes.remove(childNode);
+        long childSequenceId = parseSequenceId(id);
+        int firstRemoved = -1;
+        ListIterator<Node> iterator = childNodes.listIterator();
+        while (iterator.hasNext()) {
+            if (hasId(iterator.next(), id, childSequenceId)) {
+                if (firstRemoved == -1) {
+                    firstRemoved = iterator.previousIndex();
+                }
+                iterator.remove();
             }
         }
+        if (firstRemoved != -1) {
+            indexChildNodes(firstRemoved);
+        }
     }
 
+    /**
+     * Returns identifier of the node, sequence number of the node is
+     * converted to string on the first request unless other identifier was
+     * set.
+     */
     @Override
     public String getId() {
+        if (this.id == null) {
+            this.id = Long.toString(this.sequenceId);
+        }
         return this.id;
     }
 
@@ -137,18 +163,27 @@ public class NodeImpl implements Node {
 
     @Override
     public Node getLeftSibling() {
-        if (this.getParentNode() == null) {
-            return null;
-        } else {
-            int index = 0;
-            for (Node node : this.getParentNode().childNodes()) {
-                if (node.getId().equals(this.getId()) && index != 0) {
-                    return this.getParentNode().childNodes().get(index - 1);
-                }
-                index++;
-            }
+        int index = getIndexInParent();
+        return index > 0 ? this.parentNode.childNodes().get(index - 1) : null;
+    }
+
+    @Override
+    public Node getRightSibling() {
+        int index = getIndexInParent();
+        if (index == -1 || index + 1 == this.parentNode.childNodes().size()) {
             return null;
         }
+        return this.parentNode.childNodes().get(index + 1);
+    }
+
+    @Override
+    public int getIndexInParent() {
+        if (this.parentNode == null) {
+            return -1;
+        } else if (this.parentNode instanceof NodeImpl) {
+            return ((NodeImpl) this.parentNode).indexOfChildNode(this);
+        }
+        return this.parentNode.childNodes().indexOf(this);
     }
 
     @Override
@@ -171,4 +206,49 @@ public class NodeImpl implements Node {
         }
         return false;
     }
+
+    /**
+     * Returns position of given child node, cached position of the node is
+     * used when it is still valid.
+     */
+    private int indexOfChildNode(Node node) {
+        if (node instanceof NodeImpl) {
+            int index = ((NodeImpl) node).indexInParent;
+            if (index >= 0 && index < this.childNodes.size() && this.childNodes.get(index) == node) {
+                return index;
+            }
+        }
+        return this.childNodes.indexOf(node);
+    }
+
+    /**
+     * Caches positions of child nodes starting with given position.
+     */
+    private void indexChildNodes(int fromIndex) {
+        for (int index = fromIndex; index < this.childNodes.size(); index++) {
+            Node childNode = this.childNodes.get(index);
+            if (childNode instanceof NodeImpl) {
+                ((NodeImpl) childNode).indexInParent = index;
+            }
+        }
+    }
+
+    /**
+     * Compares identifier without converting sequence number of the node to
+     * string.
+     */
+    private static boolean hasId(Node node, String id, long sequenceId) {
+        if (node instanceof NodeImpl && ((NodeImpl) node).id == null) {
+            return ((NodeImpl) node).sequenceId == sequenceId;
+        }
+        return node.getId().equals(id);
+    }
+
+    private static long parseSequenceId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
 }
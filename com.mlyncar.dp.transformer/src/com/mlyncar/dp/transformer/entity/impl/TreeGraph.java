@@ -7,7 +7,6 @@ import com.mlyncar.dp.transformer.entity.Node;
 import com.mlyncar.dp.transformer.helper.impl.TreeOrderGeneratorImpl;
 
 import java.util.List;
-import java.util.UUID;
 
 /**
  *
@@ -17,18 +16,19 @@ public class TreeGraph implements Graph {
 
     private final Node rootNode;
     private Integer treeDepth = 0;
-    private final String treeGraphId;
+    private final long graphId;
+    private String treeGraphId;
     private SeqDiagram diagram;
 
     public TreeGraph(Node rootNode, SeqDiagram diagram) {
         this.rootNode = rootNode;
-        this.treeGraphId = UUID.randomUUID().toString();
+        this.graphId = ElementSequence.nextGraphId();
         this.diagram = diagram;
     }
 
     public TreeGraph(Node rootNode, Graph oldGraph) {
         this.rootNode = rootNode;
-        this.treeGraphId = UUID.randomUUID().toString();
+        this.graphId = ElementSequence.nextGraphId();
         this.diagram = oldGraph.getSeqDiagram();
     }
 
@@ -49,6 +49,9 @@ public class TreeGraph implements Graph {
 
     @Override
     public String getTreeGraphId() {
+        if (this.treeGraphId == null) {
+            this.treeGraphId = Long.toString(this.graphId);
+        }
         return this.treeGraphId;
     }
 
@@ -1,13 +1,22 @@
 package com.mlyncar.dp.transformer.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
 import com.mlyncar.dp.analyzer.code.service.CodeAnalyzerService;
+import com.mlyncar.dp.analyzer.config.AnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.config.ProjectContext;
+import com.mlyncar.dp.analyzer.entity.MessageSink;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
 import com.mlyncar.dp.analyzer.exception.AnalyzerException;
 import com.mlyncar.dp.analyzer.uml.service.UmlAnalyzerService;
+import com.mlyncar.dp.transformer.core.GraphBuilder;
 import com.mlyncar.dp.transformer.core.TransformationEngine;
 import com.mlyncar.dp.transformer.core.impl.TransformationEngineImpl;
 import com.mlyncar.dp.transformer.entity.Graph;
@@ -20,11 +29,32 @@ import com.mlyncar.dp.transformer.helper.impl.TreeOrderGeneratorImpl;
 public class TransformationService {
 
     private TreeOrderGenerator treeOrderGenerator;
+    private final AnalyzerConfiguration configuration;
+    private final ProjectContext projectContext;
+    private final UmlAnalyzerService umlAnalyzerService;
+
+    public TransformationService() {
+        this(new AnalyzerConfiguration());
+    }
+
+    public TransformationService(AnalyzerConfiguration configuration) {
+        this(configuration, null);
+    }
+
+    /**
+     * @param projectContext synchronized project, project selected in the
+     * workbench is used when null
+     */
+    public TransformationService(AnalyzerConfiguration configuration, ProjectContext projectContext) {
+        this.configuration = configuration;
+        this.projectContext = projectContext;
+        this.umlAnalyzerService = new UmlAnalyzerService(configuration, projectContext);
+    }
 
     public Graph getGraphStructureFromSourceCode() throws GraphTransformationException {
-        TransformationEngine engine = new TransformationEngineImpl();
+        TransformationEngine engine = new TransformationEngineImpl(configuration);
         try {
-            SeqDiagram diagram = new CodeAnalyzerService().getSequenceDiagramFromCode();
+            SeqDiagram diagram = new CodeAnalyzerService(configuration, projectContext).getSequenceDiagramFromCode();
             Graph graph = engine.transformSequenceDiagram(diagram);
             return graph;
         } catch (SourceCodeAnalyzerException ex) {
@@ -32,33 +62,91 @@ public class TransformationService {
         }
     }
 
-    public List<Graph> getGraphStructuresFromUmlModel() throws GraphTransformationException {
-        TransformationEngine engine = new TransformationEngineImpl();
+    /**
+     * Creates graph for every entry point of source code, interaction names
+     * may be used as names of entry point methods.
+     */
+    public List<Graph> getGraphStructuresFromSourceCode(Set<String> interactionNames) throws GraphTransformationException {
+        TransformationEngine engine = new TransformationEngineImpl(configuration);
         List<Graph> graphs = new ArrayList<Graph>();
-        UmlAnalyzerService analyzerService = new UmlAnalyzerService();
-        
         try {
-            for (SeqDiagram diagram : analyzerService.getAllModelDiagrams()) {
+            CodeAnalyzerService codeAnalyzerService = new CodeAnalyzerService(configuration, projectContext);
+            if (configuration.isStreaming()) {
+                GraphBuilders builders = new GraphBuilders(engine);
+                for (SeqDiagram diagram : codeAnalyzerService.getSequenceDiagramsFromCode(interactionNames, builders)) {
+                    graphs.add(builders.getGraph(diagram));
+                }
+                return graphs;
+            }
+            for (SeqDiagram diagram : codeAnalyzerService.getSequenceDiagramsFromCode(interactionNames)) {
                 graphs.add(engine.transformSequenceDiagram(diagram));
             }
+        } catch (SourceCodeAnalyzerException ex) {
+            throw new GraphTransformationException("Unable to start transformation proces because of source code analysis failure ", ex);
+        }
+        return graphs;
+    }
+
+    public List<Graph> getGraphStructuresFromUmlModel() throws GraphTransformationException {
+        TransformationEngine engine = new TransformationEngineImpl(configuration);
+        List<Graph> graphs = new ArrayList<Graph>();
+        try {
+            if (configuration.isStreaming()) {
+                GraphBuilders builders = new GraphBuilders(engine);
+                for (SeqDiagram diagram : umlAnalyzerService.getAllModelDiagrams(builders)) {
+                    graphs.add(builders.getGraph(diagram));
+                }
+                return graphs;
+            }
+            for (SeqDiagram diagram : umlAnalyzerService.getAllModelDiagrams()) {
+                graphs.add(transformUmlDiagram(engine, diagram));
+            }
         } catch (AnalyzerException ex) {
             throw new GraphTransformationException("Unable to start transformation proces because of UML model analysis failure ", ex);
         }
         return graphs;
     }
 
+    /**
+     * Returns diagrams of the UML model without transforming them, so lazy
+     * diagrams are analyzed only when they are transformed.
+     */
+    public List<SeqDiagram> getSequenceDiagramsFromUmlModel() throws GraphTransformationException {
+        try {
+            return umlAnalyzerService.getAllModelDiagrams();
+        } catch (AnalyzerException ex) {
+            throw new GraphTransformationException("Unable to start transformation proces because of UML model analysis failure ", ex);
+        }
+    }
+
+    public Graph getGraphStructureFromUmlDiagram(SeqDiagram diagram) throws GraphTransformationException {
+        return transformUmlDiagram(new TransformationEngineImpl(configuration), diagram);
+    }
+
     public Graph getGraphStructureFromConcreteDiagram(String diagramIdentifier) throws GraphTransformationException {
-        UmlAnalyzerService analyzerService = new UmlAnalyzerService();
-        TransformationEngine engine = new TransformationEngineImpl();
+        TransformationEngine engine = new TransformationEngineImpl(configuration);
         Graph graph;
         try {
-            graph = engine.transformSequenceDiagram(analyzerService.getSeqDiagram(diagramIdentifier));
+            graph = transformUmlDiagram(engine, umlAnalyzerService.getSeqDiagram(diagramIdentifier));
         } catch (AnalyzerException ex) {
             throw new GraphTransformationException("Unable to start transformation proces because of UML model analysis failure ", ex);
         }
         return graph;
     }
 
+    /**
+     * Loads messages of lazy diagram before the transformation, so failure of
+     * their analysis is reported as transformation failure.
+     */
+    private static Graph transformUmlDiagram(TransformationEngine engine, SeqDiagram diagram) throws GraphTransformationException {
+        try {
+            diagram.loadMessages();
+        } catch (AnalyzerException ex) {
+            throw new GraphTransformationException("Unable to analyze messages of UML diagram " + diagram.getName(), ex);
+        }
+        return engine.transformSequenceDiagram(diagram);
+    }
+
     public TreeOrderGenerator getTreeOrderGenerator() {
         if (treeOrderGenerator == null) {
             treeOrderGenerator = new TreeOrderGeneratorImpl();
@@ -70,4 +158,34 @@ public class TransformationService {
         return new TreeGraph(rootNode, oldGraph);
     }
 
+    /**
+     * Builders of graphs of diagrams whose messages are streamed by
+     * analyzers. Diagrams may be analyzed concurrently, diagrams analyzed
+     * without sink are transformed after their analysis.
+     */
+    private static class GraphBuilders implements MessageSinkFactory {
+
+        private final TransformationEngine engine;
+        private final Map<SeqDiagram, GraphBuilder> builders = Collections.synchronizedMap(new IdentityHashMap<SeqDiagram, GraphBuilder>());
+
+        private GraphBuilders(TransformationEngine engine) {
+            this.engine = engine;
+        }
+
+        @Override
+        public MessageSink createMessageSink(SeqDiagram diagram) {
+            GraphBuilder builder = engine.createGraphBuilder(diagram);
+            builders.put(diagram, builder);
+            return builder;
+        }
+
+        private Graph getGraph(SeqDiagram diagram) throws GraphTransformationException {
+            GraphBuilder builder = builders.remove(diagram);
+            if (builder == null) {
+                return transformUmlDiagram(engine, diagram);
+            }
+            return builder.getGraph();
+        }
+    }
+
 }
@@ -1,6 +1,8 @@
 package com.mlyncar.dp.transformer.test;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 import org.slf4j.LoggerFactory;
@@ -9,53 +11,63 @@ import org.slf4j.Logger;
 import com.mlyncar.dp.transformer.entity.Graph;
 import com.mlyncar.dp.transformer.entity.Node;
 
+/**
+ * Validation of transformed graphs, called by transformation engine only
+ * when validation is enabled in analyzer configuration.
+ */
 public class TransformationTestHelper {
 
     private final Logger logger = LoggerFactory.getLogger(TransformationTestHelper.class);
 
-    public void printGraph(Graph graph) {
-        List<Pair> nodes = new ArrayList<Pair>();
-        Pair pair = new Pair(1, graph.getRootNode());
-        nodes.add(pair);
-        addNode(graph.getRootNode(), nodes, 2);
-        boolean isPrinted = false;
-        for (int i = 0; i != 100; i++) {
-            for (Pair p : nodes) {
-                Node node = p.node;
-                if (p.level == i) {
-                    isPrinted = true;
-                    if (node.getCreateEdge() == null) {
-                        logger.debug(p.level + ": " + node.getName() + ". Childs: " + node.childNodes().size());
-                    } else {
-                        logger.debug(p.level + ": " + node.getParentNode().getName() + "->" + node.getCreateEdge().getName() + "->" + node.getName() + ". Type: " + node.getCreateEdge().getEdgeType().getCode() + ". Childs: " + node.childNodes().size() + ". Fragments: " + node.combinedFragments().size());
+    /**
+     * Checks that every node except the root is created by an edge and
+     * refers to the node which holds it as its parent. Graph is logged level
+     * by level when debug logging is enabled, violations are logged as
+     * warnings.
+     *
+     * @return list of violations, empty for valid graph
+     */
+    public List<String> validateGraph(Graph graph) {
+        List<String> violations = new ArrayList<>();
+        boolean debug = logger.isDebugEnabled();
+        Deque<Node> levelNodes = new ArrayDeque<>();
+        levelNodes.add(graph.getRootNode());
+        int level = 1;
+        while (!levelNodes.isEmpty()) {
+            Deque<Node> nextLevelNodes = new ArrayDeque<>();
+            for (Node node : levelNodes) {
+                if (debug) {
+                    logNode(node, level);
+                }
+                if (node != graph.getRootNode() && node.getCreateEdge() == null) {
+                    violations.add("Node " + node.getName() + " on level " + level + " has no create edge");
+                }
+                for (Node child : node.childNodes()) {
+                    if (child.getParentNode() != node) {
+                        violations.add("Node " + child.getName() + " on level " + (level + 1) + " does not refer to its parent " + node.getName());
                     }
+                    nextLevelNodes.add(child);
                 }
             }
-            if (isPrinted) {
-                System.out.println("---------------");
+            if (debug) {
+                logger.debug("---------------");
             }
-            isPrinted = false;
+            levelNodes = nextLevelNodes;
+            level++;
         }
-    }
-
-    private void addNode(Node node, List<Pair> nodes, Integer level) {
-        for (Node child : node.childNodes()) {
-            nodes.add(new Pair(level, child));
-        }
-        level++;
-        for (Node child : node.childNodes()) {
-            addNode(child, nodes, level);
+        for (String violation : violations) {
+            logger.warn("Graph {}: {}", graph.getTreeGraphId(), violation);
         }
+        return violations;
     }
 
-    private class Pair {
-
-        final Integer level;
-        final Node node;
-
-        public Pair(Integer level, Node node) {
-            this.level = level;
-            this.node = node;
+    private void logNode(Node node, int level) {
+        if (node.getCreateEdge() == null) {
+            logger.debug("{}: {}. Childs: {}", level, node.getName(), node.childNodes().size());
+        } else {
+            logger.debug("{}: {}->{}->{}. Type: {}. Childs: {}. Fragments: {}", level,
+                    node.getParentNode() == null ? null : node.getParentNode().getName(), node.getCreateEdge().getName(), node.getName(),
+                    node.getCreateEdge().getEdgeType().getCode(), node.childNodes().size(), node.combinedFragments().size());
         }
     }
 }